@@ -0,0 +1,119 @@
+package com.insight.base.user.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 编码分配器, 按编码组从Redis预留连续的编码段, 整段编码一次校验后放入本地编码池
+ */
+@Component
+public class CodeAllocator {
+
+    /**
+     * 编码组-本地编码池,数量有限且长期未使用的编码池被淘汰(其中未分配的编码跳过不用)
+     */
+    private final Cache<String, Deque<String>> pools;
+    private final StringRedisTemplate redis;
+    private final int blockSize;
+
+    /**
+     * 构造方法
+     *
+     * @param redis     StringRedisTemplate
+     * @param blockSize 每次预留的编码数
+     * @param poolSize  本地编码池的最大数量
+     */
+    public CodeAllocator(StringRedisTemplate redis, @Value("${insight.user.code.block-size:20}") int blockSize,
+                         @Value("${insight.user.code.pool-size:10000}") long poolSize) {
+        this.redis = redis;
+        this.blockSize = blockSize;
+        this.pools = Caffeine.newBuilder().maximumSize(poolSize).expireAfterAccess(Duration.ofHours(1)).build();
+    }
+
+    /**
+     * 分配编码
+     *
+     * @param group   编码组
+     * @param format  编码格式,如"#6"或"IU#8",#后的数字为流水号位数
+     * @param count   编码数量
+     * @param maxCode 获取已使用的最大编码,用于初始化编码组的流水号
+     * @param used    获取指定编码中已被使用的编码
+     * @return 编码集合
+     */
+    public List<String> allocate(String group, String format, int count, Supplier<String> maxCode, Function<List<String>, Collection<String>> used) {
+        var codes = new ArrayList<String>(count);
+        if (count <= 0) {
+            return codes;
+        }
+
+        var pool = pools.get(group, k -> new ArrayDeque<>());
+        synchronized (pool) {
+            while (pool.size() < count) {
+                pool.addAll(reserve(group, format, maxCode, used));
+            }
+
+            for (var i = 0; i < count; i++) {
+                codes.add(pool.poll());
+            }
+        }
+
+        return codes;
+    }
+
+    /**
+     * 预留一段编码并剔除已被使用的编码
+     *
+     * @param group   编码组
+     * @param format  编码格式
+     * @param maxCode 获取已使用的最大编码
+     * @param used    获取指定编码中已被使用的编码
+     * @return 可用编码集合
+     */
+    private List<String> reserve(String group, String format, Supplier<String> maxCode, Function<List<String>, Collection<String>> used) {
+        var index = format.indexOf('#');
+        var prefix = format.substring(0, index);
+        var width = Integer.parseInt(format.substring(index + 1));
+        var key = "CodeBlock:" + group;
+        if (!Boolean.TRUE.equals(redis.hasKey(key))) {
+            redis.opsForValue().setIfAbsent(key, String.valueOf(parse(maxCode.get(), prefix)));
+        }
+
+        var end = Objects.requireNonNull(redis.opsForValue().increment(key, blockSize));
+        var codes = new ArrayList<String>(blockSize);
+        for (var i = end - blockSize + 1; i <= end; i++) {
+            codes.add(prefix + String.format("%0" + width + "d", i));
+        }
+
+        codes.removeAll(used.apply(codes));
+        return codes;
+    }
+
+    /**
+     * 解析编码的流水号
+     *
+     * @param code   编码
+     * @param prefix 编码前缀
+     * @return 流水号,无法解析时返回0
+     */
+    private static long parse(String code, String prefix) {
+        if (code == null || !code.startsWith(prefix)) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(code.substring(prefix.length()));
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
@@ -1,17 +1,23 @@
 package com.insight.base.user.common;
 
+import com.insight.base.user.common.dto.ImportResultDto;
+import com.insight.base.user.common.dto.TenantUserDto;
+import com.insight.base.user.common.dto.UserEventDto;
+import com.insight.base.user.common.dto.UserKeyDto;
 import com.insight.base.user.common.mapper.UserMapper;
 import com.insight.utils.SnowflakeCreator;
 import com.insight.utils.Util;
 import com.insight.utils.pojo.base.BusinessException;
+import com.insight.utils.pojo.user.User;
 import com.insight.utils.pojo.user.UserDto;
-import com.insight.utils.redis.Generator;
-import com.insight.utils.redis.HashOps;
-import com.insight.utils.redis.KeyOps;
+import jakarta.validation.Validator;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * @author 宣炳刚
@@ -22,16 +28,38 @@ import java.time.LocalDateTime;
 public class Core {
     private final SnowflakeCreator creator;
     private final UserMapper mapper;
+    private final UserCache cache;
+    private final Validator validator;
+    private final CodeAllocator allocator;
+    private final UserSummary summary;
+    private final UserIndex index;
+    private final CountCache counts;
+    private final UserEvents events;
 
     /**
      * 构造方法
      *
-     * @param creator 雪花算法ID生成器
-     * @param mapper  UserMapper
+     * @param creator   雪花算法ID生成器
+     * @param mapper    UserMapper
+     * @param cache     用户缓存
+     * @param validator 数据校验器
+     * @param allocator 编码分配器
+     * @param summary   用户摘要
+     * @param index     用户检索索引
+     * @param counts    分页总数缓存
+     * @param events    用户变更事件
      */
-    public Core(SnowflakeCreator creator, UserMapper mapper) {
+    public Core(SnowflakeCreator creator, UserMapper mapper, UserCache cache, Validator validator, CodeAllocator allocator, UserSummary summary,
+                UserIndex index, CountCache counts, UserEvents events) {
         this.creator = creator;
         this.mapper = mapper;
+        this.cache = cache;
+        this.validator = validator;
+        this.allocator = allocator;
+        this.summary = summary;
+        this.index = index;
+        this.counts = counts;
+        this.events = events;
     }
 
     /**
@@ -41,45 +69,16 @@ public class Core {
      */
     @Transactional
     public Long processUser(UserDto user) {
-        if (mapper.userIsExisted(user)) {
+        var keys = keysOf(user.getAccount(), user.getMobile(), user.getEmail());
+        if (!keys.isEmpty() && !mapper.getUsedKeys(user.getId() == null ? 0L : user.getId(), keys).isEmpty()) {
             return null;
         }
 
         var data = mapper.getUser(user.getId());
         if (data == null) {
-            if (user.getId() == null) {
-                user.setId(creator.nextId(3));
-            }
-
-            if (user.getType() == null) {
-                user.setType(0);
-            }
-
-            if (Util.isEmpty(user.getCode())) {
-                String code = newUserCode(user.getTenantId());
-                user.setCode(code);
-            }
-
-            if (Util.isEmpty(user.getAccount())) {
-                user.setAccount(Util.uuid());
-            }
-
-            if (Util.isEmpty(user.getPassword())) {
-                String pw = Util.md5(user.getType() > 0 ? "123456" : Util.uuid());
-                user.setPassword(pw);
-            }
-
-            if (user.getBuiltin() == null) {
-                user.setBuiltin(false);
-            }
-
-            if (user.getCreatorId() == null) {
-                user.setCreator(user.getName());
-                user.setCreatorId(user.getId());
-            }
-
-            user.setCreatedTime(LocalDateTime.now());
+            initUser(user);
             mapper.addUser(user);
+            addKeys(keysOf(user));
 
             if (user.getTenantId() != null) {
                 mapper.addRelation(user.getTenantId(), user.getId());
@@ -94,83 +93,163 @@ public class Core {
             if (Util.isNotEmpty(roleIds)) {
                 mapper.addRoleMember(user.getId(), roleIds);
             }
-        } else {
-            // 清理失效缓存数据
-            var account = data.getAccount();
-            if (!account.equals(user.getAccount())) {
-                KeyOps.delete("ID:" + account);
-            }
 
-            var mobile = data.getMobile();
-            if (Util.isNotEmpty(mobile) && !mobile.equals(user.getMobile())) {
-                KeyOps.delete("ID:" + mobile);
+            if (user.getTenantId() != null || Util.isNotEmpty(roleIds)) {
+                summary.refresh(user.getId());
             }
 
-            String email = data.getEmail();
-            if (Util.isNotEmpty(email) && !email.equals(user.getEmail())) {
-                KeyOps.delete("ID:" + email);
-            }
-
-            // 更新缓存数据
-            var key = "User:" + user.getId();
+            counts.bump(user.getTenantId());
+            events.add(user.getId(), user.getTenantId(), UserEvents.CREATED, null);
+        } else {
+            // 补全未提交的字段
             if (Util.isEmpty(user.getName())) {
                 user.setName(data.getName());
-            } else if (KeyOps.hasKey(key)) {
-                HashOps.put(key, "name", user.getName());
             }
 
             if (Util.isEmpty(user.getAccount())) {
                 user.setAccount(data.getAccount());
-            } else if (KeyOps.hasKey(key)) {
-                HashOps.put(key, "account", user.getAccount());
             }
 
             if (Util.isEmpty(user.getMobile())) {
                 user.setMobile(data.getMobile());
-            } else if (KeyOps.hasKey(key)) {
-                HashOps.put(key, "mobile", user.getMobile());
             }
 
             if (Util.isEmpty(user.getEmail())) {
                 user.setEmail(data.getEmail());
-            } else if (KeyOps.hasKey(key)) {
-                HashOps.put(key, "email", user.getEmail());
             }
 
             if (Util.isEmpty(user.getNickname())) {
                 user.setNickname(data.getNickname());
-            } else if (KeyOps.hasKey(key)) {
-                HashOps.put(key, "nickname", user.getNickname());
             }
 
             if (user.getUnionId() == null) {
                 user.setUnionId(data.getUnionId());
-            } else if (KeyOps.hasKey(key)) {
-                HashOps.put(key, "unionId", user.getUnionId());
             }
 
             if (Util.isEmpty(user.getHeadImg())) {
                 user.setHeadImg(data.getHeadImg());
-            } else if (KeyOps.hasKey(key)) {
-                HashOps.put(key, "headImg", user.getHeadImg());
             }
 
             if (Util.isEmpty(user.getRemark())) {
                 user.setRemark(data.getRemark());
-            } else if (KeyOps.hasKey(key)) {
-                HashOps.put(key, "remark", user.getRemark());
             }
 
             if (user.getInvalid() == null) {
                 user.setInvalid(data.getInvalid());
-            } else if (KeyOps.hasKey(key)) {
-                HashOps.put(key, "invalid", user.getInvalid());
             }
+
+            var fields = changedFields(data, user);
             mapper.updateUser(user);
+            if (!Objects.equals(user.getAccount(), data.getAccount()) || !Objects.equals(user.getMobile(), data.getMobile())
+                    || !Objects.equals(user.getEmail(), data.getEmail())) {
+                mapper.removeKeys(user.getId());
+                addKeys(keysOf(user));
+            }
+
+            // 更新缓存数据
+            cache.update(data, user);
+            counts.bump(mapper.getTenantUsers(List.of(user.getId())).stream().map(TenantUserDto::getTenantId).toList());
+            if (!fields.isEmpty()) {
+                events.add(user.getId(), null, UserEvents.UPDATED, fields);
+            }
         }
+
+        index.changed(user.getId());
         return user.getId();
     }
 
+    /**
+     * 在一个事务中批量处理用户,每个用户在其消息携带的请求上下文中处理
+     *
+     * @param users    用户DTO集合
+     * @param contexts 与用户一一对应的请求上下文集合
+     */
+    @Transactional
+    public void processUsers(List<UserDto> users, List<RequestContext> contexts) {
+        for (var i = 0; i < users.size(); i++) {
+            var user = users.get(i);
+            RequestContext.run(contexts.get(i), () -> processUser(user));
+        }
+    }
+
+    /**
+     * 在一个事务中更新登录密码并写入变更事件
+     *
+     * @param id       用户ID
+     * @param password 登录密码
+     */
+    @Transactional
+    public void updatePassword(Long id, String password) {
+        mapper.updatePassword(id, password);
+        events.add(id, null, UserEvents.PASSWORD, List.of("password"));
+    }
+
+    /**
+     * 在一个事务中更新支付密码并写入变更事件
+     *
+     * @param id       用户ID
+     * @param password 支付密码
+     */
+    @Transactional
+    public void updatePayPassword(Long id, String password) {
+        mapper.updatePayPassword(id, password);
+        events.add(id, null, UserEvents.PASSWORD, List.of("payPassword"));
+    }
+
+    /**
+     * 批量导入用户,整批数据在一个事务中以多行插入写入用户及其租户、组织机构和角色关系
+     *
+     * @param users  用户DTO集合
+     * @param offset 首行行号
+     * @return 导入结果集合
+     */
+    @Transactional
+    public List<ImportResultDto> importUsers(List<UserDto> users, int offset) {
+        var messages = new String[users.size()];
+        var seen = new HashSet<String>();
+        for (var i = 0; i < users.size(); i++) {
+            var user = users.get(i);
+            messages[i] = validate(user);
+            if (messages[i] != null) {
+                continue;
+            }
+
+            var keys = keysOf(user.getAccount(), user.getMobile(), user.getEmail());
+            if (keys.stream().anyMatch(seen::contains)) {
+                messages[i] = "账号/手机号/Email在导入数据中重复";
+            } else {
+                seen.addAll(keys);
+            }
+        }
+
+        // 一次查询校验整批数据的登录标识
+        var used = seen.isEmpty() ? Set.<String>of() : mapper.getUsedKeys(0L, new ArrayList<>(seen)).stream()
+                .map(k -> normalize(k.getKey())).collect(Collectors.toSet());
+        var list = new ArrayList<UserDto>();
+        for (var i = 0; i < users.size(); i++) {
+            if (messages[i] != null) {
+                continue;
+            }
+
+            var user = users.get(i);
+            messages[i] = usedMessage(used, user.getAccount(), user.getMobile(), user.getEmail());
+            if (messages[i] == null) {
+                list.add(user);
+            }
+        }
+
+        if (!list.isEmpty()) {
+            addUsers(list);
+        }
+
+        var results = new ArrayList<ImportResultDto>(users.size());
+        for (var i = 0; i < users.size(); i++) {
+            results.add(new ImportResultDto(offset + i, users.get(i), messages[i]));
+        }
+
+        return results;
+    }
+
     /**
      * 用户是否已经存在
      *
@@ -180,36 +259,278 @@ public class Core {
      * @param email   邮箱
      */
     public void matchUser(Long userId, String account, String mobile, String email) {
-        if (mapper.keyIsExisted(userId, account)) {
-            throw new BusinessException("账号[" + account + "]已被使用");
+        var keys = keysOf(account, mobile, email);
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        var used = mapper.getUsedKeys(userId == null ? 0L : userId, keys).stream().map(k -> normalize(k.getKey())).collect(Collectors.toSet());
+        var message = usedMessage(used, account, mobile, email);
+        if (message != null) {
+            throw new BusinessException(message);
+        }
+    }
+
+    /**
+     * 以多行插入写入用户及其登录标识、租户、组织机构和角色关系
+     *
+     * @param users 用户DTO集合
+     */
+    private void addUsers(List<UserDto> users) {
+        var codes = new ArrayDeque<>(newUserCodes(users.get(0).getTenantId(), (int) users.stream().filter(u -> Util.isEmpty(u.getCode())).count()));
+        var keys = new ArrayList<UserKeyDto>();
+        var relations = new HashMap<Long, List<Long>>();
+        for (var user : users) {
+            if (Util.isEmpty(user.getCode())) {
+                user.setCode(codes.poll());
+            }
+
+            initUser(user);
+            keys.addAll(keysOf(user));
+            if (user.getTenantId() != null) {
+                relations.computeIfAbsent(user.getTenantId(), k -> new ArrayList<>()).add(user.getId());
+            }
         }
 
-        if (Util.isNotEmpty(mobile) && mapper.keyIsExisted(userId, mobile)) {
-            throw new BusinessException("手机号[" + mobile + "]已被使用");
+        mapper.addUsers(users);
+        addKeys(keys);
+        relations.forEach(mapper::addRelations);
+
+        var orgMembers = users.stream().filter(u -> u.getOrgId() != null).toList();
+        if (!orgMembers.isEmpty()) {
+            mapper.addOrgMembers(orgMembers);
         }
 
-        if (Util.isNotEmpty(email) && mapper.keyIsExisted(userId, email)) {
-            throw new BusinessException("Email[" + email + "]已被使用");
+        var roleMembers = users.stream().filter(u -> Util.isNotEmpty(u.getRoleIds())).toList();
+        if (!roleMembers.isEmpty()) {
+            mapper.addRoleMembers(roleMembers);
         }
+
+        summary.refresh(users.stream().filter(u -> u.getTenantId() != null || Util.isNotEmpty(u.getRoleIds())).map(UserDto::getId).toList());
+        index.changed(users.stream().map(UserDto::getId).toList());
+        counts.bump(relations.keySet());
+        events.add(users.stream().map(u -> new UserEventDto(u.getId(), u.getTenantId(), UserEvents.CREATED, null)).toList());
     }
 
     /**
-     * 获取用户编码
+     * 初始化新用户的默认数据
+     *
+     * @param user 用户DTO
+     */
+    private void initUser(UserDto user) {
+        if (user.getId() == null) {
+            user.setId(creator.nextId(3));
+        }
+
+        if (user.getType() == null) {
+            user.setType(0);
+        }
+
+        if (Util.isEmpty(user.getCode())) {
+            user.setCode(newUserCodes(user.getTenantId(), 1).get(0));
+        }
+
+        if (Util.isEmpty(user.getAccount())) {
+            user.setAccount(Util.uuid());
+        }
+
+        if (Util.isEmpty(user.getPassword())) {
+            String pw = Util.md5(user.getType() > 0 ? "123456" : Util.uuid());
+            user.setPassword(pw);
+        }
+
+        if (user.getBuiltin() == null) {
+            user.setBuiltin(false);
+        }
+
+        if (user.getCreatorId() == null) {
+            user.setCreator(user.getName());
+            user.setCreatorId(user.getId());
+        }
+
+        user.setCreatedTime(LocalDateTime.now());
+    }
+
+    /**
+     * 校验导入的用户数据
+     *
+     * @param user 用户DTO
+     * @return 错误信息,校验通过时返回null
+     */
+    private String validate(UserDto user) {
+        if (user == null) {
+            return "数据格式错误";
+        }
+
+        var violations = validator.validate(user);
+        if (violations.isEmpty()) {
+            return null;
+        }
+
+        var violation = violations.iterator().next();
+        return violation.getPropertyPath() + violation.getMessage();
+    }
+
+    /**
+     * 生成登录标识已被使用的错误信息
+     *
+     * @param used    已被使用的登录标识集合(小写)
+     * @param account 登录账号
+     * @param mobile  手机号
+     * @param email   邮箱
+     * @return 错误信息,均未被使用时返回null
+     */
+    private static String usedMessage(Set<String> used, String account, String mobile, String email) {
+        if (used.isEmpty()) {
+            return null;
+        }
+
+        if (Util.isNotEmpty(account) && used.contains(normalize(account))) {
+            return "账号[" + account + "]已被使用";
+        }
+
+        if (Util.isNotEmpty(mobile) && used.contains(normalize(mobile))) {
+            return "手机号[" + mobile + "]已被使用";
+        }
+
+        if (Util.isNotEmpty(email) && used.contains(normalize(email))) {
+            return "Email[" + email + "]已被使用";
+        }
+
+        return null;
+    }
+
+    /**
+     * 写入用户登录标识,标识已被其他用户占用时由唯一约束拒绝写入
+     *
+     * @param keys 登录标识集合
+     */
+    private void addKeys(List<UserKeyDto> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        try {
+            mapper.addKeys(keys);
+        } catch (DuplicateKeyException ex) {
+            throw new BusinessException("账号/手机号/Email已被使用");
+        }
+    }
+
+    /**
+     * 获取用户的登录标识数据,登录标识统一转为小写
+     *
+     * @param user 用户DTO
+     * @return 登录标识集合
+     */
+    private static List<UserKeyDto> keysOf(UserDto user) {
+        var keys = new ArrayList<UserKeyDto>();
+        var values = new String[]{user.getAccount(), user.getMobile(), user.getEmail()};
+        for (var i = 0; i < values.length; i++) {
+            var key = Util.isEmpty(values[i]) ? null : normalize(values[i]);
+            if (key != null && keys.stream().noneMatch(k -> k.getKey().equals(key))) {
+                keys.add(new UserKeyDto(key, i, user.getId()));
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * 获取非空的登录标识集合,登录标识统一转为小写
+     *
+     * @param account 登录账号
+     * @param mobile  手机号
+     * @param email   邮箱
+     * @return 登录标识集合
+     */
+    private static List<String> keysOf(String account, String mobile, String email) {
+        var keys = new ArrayList<String>();
+        for (var value : new String[]{account, mobile, email}) {
+            if (Util.isEmpty(value)) {
+                continue;
+            }
+
+            var key = normalize(value);
+            if (!keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * 规范化登录标识,与数据库不区分大小写的排序规则保持一致
+     *
+     * @param key 登录标识
+     * @return 小写的登录标识
+     */
+    private static String normalize(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 批量获取用户编码
      *
      * @param tenantId 租户ID
-     * @return 用户编码
+     * @param count    编码数量
+     * @return 用户编码集合
      */
-    private String newUserCode(Long tenantId) {
+    private List<String> newUserCodes(Long tenantId, int count) {
         boolean isTenant = tenantId != null;
         String group = isTenant ? "Base:User:" + tenantId : "Base:User";
-        String format = isTenant ? "#6" : "IU#8";
-        while (true) {
-            String code = Generator.newCode(format, group, !isTenant);
-            if (mapper.codeIsExisted(tenantId, code)) {
-                continue;
-            }
+        String prefix = isTenant ? "" : "IU";
+        int length = isTenant ? 6 : 10;
+        return allocator.allocate(group, prefix + "#" + (length - prefix.length()), count,
+                () -> mapper.getMaxCode(tenantId, prefix, length), codes -> mapper.getUsedCodes(tenantId, codes));
+    }
+
+    /**
+     * 比较用户的原数据和新数据,获取发生变更的字段
+     *
+     * @param data 原数据
+     * @param user 新数据
+     * @return 变更字段集合
+     */
+    private static List<String> changedFields(User data, UserDto user) {
+        var fields = new ArrayList<String>();
+        if (!Objects.equals(data.getName(), user.getName())) {
+            fields.add("name");
+        }
+
+        if (!Objects.equals(data.getAccount(), user.getAccount())) {
+            fields.add("account");
+        }
+
+        if (!Objects.equals(data.getMobile(), user.getMobile())) {
+            fields.add("mobile");
+        }
 
-            return code;
+        if (!Objects.equals(data.getEmail(), user.getEmail())) {
+            fields.add("email");
         }
+
+        if (!Objects.equals(data.getNickname(), user.getNickname())) {
+            fields.add("nickname");
+        }
+
+        if (!Objects.equals(data.getUnionId(), user.getUnionId())) {
+            fields.add("unionId");
+        }
+
+        if (!Objects.equals(data.getHeadImg(), user.getHeadImg())) {
+            fields.add("headImg");
+        }
+
+        if (!Objects.equals(data.getRemark(), user.getRemark())) {
+            fields.add("remark");
+        }
+
+        if (!Objects.equals(data.getInvalid(), user.getInvalid())) {
+            fields.add("invalid");
+        }
+
+        return fields;
     }
 }
@@ -0,0 +1,140 @@
+package com.insight.base.user.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.pagehelper.ISelect;
+import com.github.pagehelper.PageHelper;
+import com.insight.utils.ReplyHelper;
+import com.insight.utils.Util;
+import com.insight.utils.pojo.base.Reply;
+import com.insight.utils.pojo.base.Search;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 分页查询总数缓存, 以查询条件和租户数据版本为键, 数据变更时递增租户数据版本使缓存失效
+ */
+@Component
+public class CountCache {
+
+    /**
+     * 不限定租户的查询所使用的数据版本,任何租户的数据变更都会递增
+     */
+    private static final long ALL = 0L;
+    private final StringRedisTemplate redis;
+    private final Cache<String, Long> cache;
+    private final Cache<String, Long> latest;
+
+    /**
+     * 构造方法
+     *
+     * @param redis    StringRedisTemplate
+     * @param registry 指标注册器
+     * @param size     最大缓存条目数
+     * @param ttl      缓存有效时长(秒)
+     */
+    public CountCache(StringRedisTemplate redis, MeterRegistry registry, @Value("${insight.user.count.size:10000}") long size,
+                      @Value("${insight.user.count.ttl:600}") long ttl) {
+        this.redis = redis;
+        this.cache = Caffeine.newBuilder().maximumSize(size).expireAfterWrite(Duration.ofSeconds(ttl)).recordStats().build();
+        this.latest = Caffeine.newBuilder().maximumSize(size).expireAfterWrite(Duration.ofHours(1)).build();
+
+        CaffeineCacheMetrics.monitor(registry, cache, "count");
+    }
+
+    /**
+     * 分页查询,总数命中缓存时不再执行count查询
+     *
+     * @param scope    查询名称
+     * @param tenantId 数据版本所属租户ID,为空时使用全局数据版本
+     * @param search   查询实体类
+     * @param approx   是否允许使用数据变更前的总数(近似值)
+     * @param select   查询方法
+     * @return Reply
+     */
+    public Reply page(String scope, Long tenantId, Search search, boolean approx, ISelect select) {
+        var filter = scope + ":" + fingerprint(search);
+        var key = filter + ":" + generation(tenantId);
+        var total = cache.getIfPresent(key);
+        if (total == null && approx) {
+            total = latest.getIfPresent(filter);
+        }
+
+        var count = total == null;
+        try (var page = PageHelper.startPage(search.getPageNum(), search.getPageSize(), count).setOrderBy(search.getOrderBy())
+                .doSelectPage(select)) {
+            if (count) {
+                total = page.getTotal();
+                cache.put(key, total);
+                latest.put(filter, total);
+            }
+
+            return total > 0 ? ReplyHelper.success(page.getResult(), total) : ReplyHelper.resultIsEmpty();
+        }
+    }
+
+    /**
+     * 在当前事务提交后递增租户及全局数据版本
+     *
+     * @param tenantIds 租户ID集合
+     */
+    public void bump(Collection<Long> tenantIds) {
+        Set<Long> ids = new HashSet<>(tenantIds);
+        ids.remove(null);
+        ids.add(ALL);
+        TransactionHelper.afterCommit(() -> ids.forEach(id -> redis.opsForValue().increment(key(id))));
+    }
+
+    /**
+     * 在当前事务提交后递增租户及全局数据版本
+     *
+     * @param tenantId 租户ID,为空时只递增全局数据版本
+     */
+    public void bump(Long tenantId) {
+        bump(tenantId == null ? List.of() : List.of(tenantId));
+    }
+
+    /**
+     * 读取数据版本
+     *
+     * @param tenantId 租户ID
+     * @return 数据版本
+     */
+    private String generation(Long tenantId) {
+        var value = redis.opsForValue().get(key(tenantId == null ? ALL : tenantId));
+        return value == null ? "0" : value;
+    }
+
+    /**
+     * 生成查询条件指纹,不含分页和排序参数
+     *
+     * @param search 查询实体类
+     * @return 查询条件指纹
+     */
+    private static String fingerprint(Search search) {
+        var keyword = search.getKeyword() == null ? null : search.getKeyword().strip();
+        var orgs = search.getLongSet() == null ? null : search.getLongSet().stream().sorted().toList();
+        return Util.md5(search.getTenantId() + "|" + search.getOwnerId() + "|" + search.getId() + "|" + search.getInvalid() + "|" + keyword + "|" + orgs);
+    }
+
+    /**
+     * 数据版本键
+     *
+     * @param tenantId 租户ID
+     * @return Redis键
+     */
+    private static String key(Long tenantId) {
+        return "CountGeneration:" + tenantId;
+    }
+}
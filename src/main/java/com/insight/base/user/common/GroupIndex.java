@@ -0,0 +1,335 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.dto.CursorPageDto;
+import com.insight.base.user.common.mapper.GroupMapper;
+import com.insight.utils.pojo.base.BusinessException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户组成员位图索引, 以用户组ID为键在内存中保存成员用户ID的压缩位图, 供成员判断和用户组集合运算
+ */
+@Component
+public class GroupIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupIndex.class);
+
+    /**
+     * 用户组成员变更广播频道,消息为"G{用户组ID}"或"U{用户ID}"
+     */
+    public static final String CHANNEL = "Channel:GroupIndex";
+    private static final int MAX_LIMIT = 10000;
+    private final GroupMapper mapper;
+    private final StringRedisTemplate redis;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 变更消息按到达顺序在单一线程中处理,后到的消息总是读取到不早于先到的消息所读取的数据库状态
+     */
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            r -> {
+                var thread = new Thread(r, "group-index-apply");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    /**
+     * 用户组ID-成员位图,位图只读,变更时整体替换
+     */
+    private volatile Map<Long, Roaring64Bitmap> groups;
+    private volatile long buildMillis;
+
+    /**
+     * 构造方法
+     *
+     * @param mapper    GroupMapper
+     * @param redis     StringRedisTemplate
+     * @param container Redis消息订阅容器
+     * @param registry  指标注册器
+     */
+    public GroupIndex(GroupMapper mapper, StringRedisTemplate redis, RedisMessageListenerContainer container, MeterRegistry registry) {
+        this.mapper = mapper;
+        this.redis = redis;
+
+        Gauge.builder("group.index.groups", this, i -> i.groups == null ? 0 : i.groups.size()).register(registry);
+        Gauge.builder("group.index.size", this, i -> i.sizeInBytes()).baseUnit("bytes").register(registry);
+        Gauge.builder("group.index.build", this, i -> i.buildMillis / 1000.0).baseUnit("seconds").register(registry);
+        container.addMessageListener((message, pattern) -> submit(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 应用启动后在后台线程中构建索引,构建完成前成员判断使用SQL
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        var thread = new Thread(this::rebuild, "group-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 以流式读取方式全量重建索引
+     */
+    @Scheduled(cron = "${insight.user.group-index.cron:0 10 4 * * ?}")
+    public void rebuild() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            var start = System.currentTimeMillis();
+            var next = new ConcurrentHashMap<Long, Roaring64Bitmap>();
+            mapper.scanMembers(context -> {
+                var member = context.getResultObject();
+                next.computeIfAbsent(member.getGroupId(), k -> new Roaring64Bitmap()).addLong(member.getUserId());
+            });
+            next.values().forEach(Roaring64Bitmap::runOptimize);
+
+            groups = next;
+            buildMillis = System.currentTimeMillis() - start;
+            LOGGER.info("用户组成员索引构建完成,用户组数{},占用内存{}字节,耗时{}毫秒", next.size(), sizeInBytes(), buildMillis);
+        } catch (Exception ex) {
+            LOGGER.error("用户组成员索引构建失败: {}", ex.getMessage());
+        } finally {
+            building.set(false);
+        }
+
+        // 重放构建期间发生的变更
+        var messages = new ArrayList<>(pending);
+        pending.removeAll(messages);
+        messages.forEach(this::submit);
+    }
+
+    /**
+     * 停止变更处理线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 在当前事务提交后广播用户组成员变更,各节点据此从数据库重新读取该用户组的成员
+     *
+     * @param groupId 用户组ID
+     */
+    public void groupChanged(Long groupId) {
+        if (groupId != null) {
+            TransactionHelper.afterCommit(() -> redis.convertAndSend(CHANNEL, "G" + groupId));
+        }
+    }
+
+    /**
+     * 在当前事务提交后广播用户的用户组关系变更,各节点据此从数据库重新读取该用户所属的用户组
+     *
+     * @param userId 用户ID
+     */
+    public void userChanged(Long userId) {
+        if (userId != null) {
+            TransactionHelper.afterCommit(() -> redis.convertAndSend(CHANNEL, "U" + userId));
+        }
+    }
+
+    /**
+     * 用户是否为用户组成员
+     *
+     * @param groupId 用户组ID
+     * @param userId  用户ID
+     * @return 是否成员
+     */
+    public boolean contains(Long groupId, Long userId) {
+        var current = groups;
+        if (current == null) {
+            return !mapper.getMemberIds(groupId, List.of(userId)).isEmpty();
+        }
+
+        var bitmap = current.get(groupId);
+        return bitmap != null && bitmap.contains(userId);
+    }
+
+    /**
+     * 筛选指定用户中的用户组成员
+     *
+     * @param groupId 用户组ID
+     * @param userIds 用户ID集合
+     * @return 是用户组成员的用户ID集合(按请求顺序)
+     */
+    public List<Long> filter(Long groupId, List<Long> userIds) {
+        var ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        var current = groups;
+        if (current == null) {
+            var members = new HashSet<>(mapper.getMemberIds(groupId, ids));
+            return ids.stream().filter(members::contains).toList();
+        }
+
+        var bitmap = current.get(groupId);
+        return bitmap == null ? List.of() : ids.stream().filter(bitmap::contains).toList();
+    }
+
+    /**
+     * 对多个用户组的成员进行集合运算
+     *
+     * @param operator 运算:union(并集)/intersect(交集)/difference(第一个用户组减去其余用户组)
+     * @param groupIds 用户组ID集合
+     * @param afterId  起始用户ID(不含),为空时从头开始
+     * @param limit    返回的用户数
+     * @return 用户ID集合,total为结果总数,next为下一页的起始用户ID
+     */
+    public CursorPageDto<Long> compute(String operator, List<Long> groupIds, Long afterId, Integer limit) {
+        var current = groups;
+        if (current == null) {
+            throw new BusinessException("用户组成员索引正在构建,请稍后再试");
+        }
+
+        if (!List.of("union", "intersect", "difference").contains(operator)) {
+            throw new BusinessException("不支持的运算: " + operator);
+        }
+
+        if (groupIds == null || groupIds.isEmpty()) {
+            throw new BusinessException("用户组ID不能为空");
+        }
+
+        var empty = new Roaring64Bitmap();
+        var bitmaps = groupIds.stream().map(id -> current.getOrDefault(id, empty)).toList();
+        var result = bitmaps.get(0).clone();
+        for (var bitmap : bitmaps.subList(1, bitmaps.size())) {
+            switch (operator) {
+                case "union" -> result.or(bitmap);
+                case "intersect" -> result.and(bitmap);
+                default -> result.andNot(bitmap);
+            }
+        }
+
+        var size = limit == null || limit <= 0 ? MAX_LIMIT : Math.min(limit, MAX_LIMIT);
+        var list = new ArrayList<Long>(Math.min(size, (int) Math.min(result.getLongCardinality(), MAX_LIMIT)));
+        var iterator = result.getLongIterator();
+        String next = null;
+        while (iterator.hasNext()) {
+            var id = iterator.next();
+            if (afterId != null && Long.compareUnsigned(id, afterId) <= 0) {
+                continue;
+            }
+
+            if (list.size() == size) {
+                next = String.valueOf(list.get(size - 1));
+                break;
+            }
+
+            list.add(id);
+        }
+
+        var page = new CursorPageDto<Long>();
+        page.setList(list);
+        page.setNext(next);
+        page.setTotal(result.getLongCardinality());
+        return page;
+    }
+
+    /**
+     * 提交变更消息,由变更处理线程按顺序处理
+     *
+     * @param message 变更消息
+     */
+    private void submit(String message) {
+        executor.execute(() -> apply(message));
+    }
+
+    /**
+     * 处理变更消息:从数据库重新读取用户组成员或用户所属的用户组
+     *
+     * @param message 变更消息
+     */
+    void apply(String message) {
+        if (building.get()) {
+            pending.add(message);
+        }
+
+        var current = groups;
+        if (current == null) {
+            return;
+        }
+
+        try {
+            var id = Long.valueOf(message.substring(1));
+            if (message.charAt(0) == 'G') {
+                var members = mapper.getGroupMemberIds(id);
+                if (members.isEmpty()) {
+                    current.remove(id);
+                } else {
+                    var bitmap = new Roaring64Bitmap();
+                    members.forEach(bitmap::addLong);
+                    bitmap.runOptimize();
+                    current.put(id, bitmap);
+                }
+            } else {
+                var groupIds = new HashSet<>(mapper.getUserGroupIds(id));
+                current.forEach((groupId, bitmap) -> {
+                    if (bitmap.contains(id) != groupIds.contains(groupId)) {
+                        update(current, groupId, id, groupIds.contains(groupId));
+                    }
+                });
+
+                groupIds.stream().filter(g -> !current.containsKey(g)).forEach(g -> update(current, g, id, true));
+            }
+        } catch (Exception ex) {
+            LOGGER.error("用户组成员索引更新失败: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * 以复制后替换的方式增删用户组成员,不影响正在读取位图的线程
+     *
+     * @param current 用户组ID-成员位图
+     * @param groupId 用户组ID
+     * @param userId  用户ID
+     * @param member  是否成员
+     */
+    private static void update(Map<Long, Roaring64Bitmap> current, Long groupId, Long userId, boolean member) {
+        current.compute(groupId, (k, bitmap) -> {
+            var copy = bitmap == null ? new Roaring64Bitmap() : bitmap.clone();
+            if (member) {
+                copy.addLong(userId);
+            } else {
+                copy.removeLong(userId);
+            }
+
+            return copy.isEmpty() ? null : copy;
+        });
+    }
+
+    /**
+     * 索引占用的内存
+     *
+     * @return 字节数
+     */
+    private long sizeInBytes() {
+        var current = groups;
+        return current == null ? 0 : current.values().stream().mapToLong(Roaring64Bitmap::getLongSizeInBytes).sum();
+    }
+}
@@ -0,0 +1,120 @@
+package com.insight.base.user.common;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 限制请求线程并发连接数的数据源, 请求线程获取连接前须取得许可, 连接关闭时归还许可;
+ *         其他线程(消息监听、定时任务等)不受限制, 可使用连接池中其余的连接
+ */
+public class LimitedDataSource extends DelegatingDataSource {
+    private static final ThreadLocal<Boolean> LIMITED = new ThreadLocal<>();
+    private final Semaphore permits;
+    private final long timeout;
+
+    /**
+     * 构造方法
+     *
+     * @param target  目标数据源
+     * @param permits 许可数
+     * @param timeout 等待许可的时长(毫秒)
+     */
+    public LimitedDataSource(DataSource target, int permits, long timeout) {
+        super(target);
+        this.permits = new Semaphore(permits, true);
+        this.timeout = timeout;
+    }
+
+    /**
+     * 标记当前线程获取连接时是否受许可限制
+     *
+     * @param limited 是否受限
+     * @return 原标记
+     */
+    public static boolean limit(boolean limited) {
+        var previous = Boolean.TRUE.equals(LIMITED.get());
+        if (limited) {
+            LIMITED.set(true);
+        } else {
+            LIMITED.remove();
+        }
+
+        return previous;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!Boolean.TRUE.equals(LIMITED.get())) {
+            return obtainTargetDataSource().getConnection();
+        }
+
+        acquire();
+        try {
+            return wrap(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!Boolean.TRUE.equals(LIMITED.get())) {
+            return obtainTargetDataSource().getConnection(username, password);
+        }
+
+        acquire();
+        try {
+            return wrap(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * 等待许可
+     */
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("等待数据库连接超时");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("等待数据库连接被中断", ex);
+        }
+    }
+
+    /**
+     * 代理连接,在连接首次关闭时归还许可
+     *
+     * @param connection 数据库连接
+     * @return 代理连接
+     */
+    private Connection wrap(Connection connection) {
+        var released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(LimitedDataSource.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            } finally {
+                if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        });
+    }
+}
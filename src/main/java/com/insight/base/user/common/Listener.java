@@ -3,15 +3,16 @@ package com.insight.base.user.common;
 import com.insight.base.user.common.config.QueueConfig;
 import com.insight.utils.Json;
 import com.insight.utils.pojo.user.UserDto;
+import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.core.Message;
-import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * @author 宣炳刚
@@ -33,23 +34,75 @@ public class Listener {
     }
 
     /**
-     * 从队列订阅新增用户消息
+     * 从队列批量订阅新增用户消息,整批消息在一个事务中处理,失败时逐条重试。
+     * 逐条重试时仅确认已处理或已转入延迟队列的消息,转入失败的消息及其后的消息退回队列
+     *
+     * @param channel  Channel
+     * @param messages Message集合
+     * @throws IOException IOException
+     */
+    @RabbitListener(queues = "insight.user", containerFactory = "batchContainerFactory")
+    public void receiveUsers(Channel channel, List<Message> messages) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        var last = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+        try {
+            var contexts = messages.stream().map(m -> RequestContext.from(m.getMessageProperties())).toList();
+            core.processUsers(messages.stream().map(this::toUser).toList(), contexts);
+            channel.basicAck(last, true);
+            return;
+        } catch (Exception ex) {
+            logger.warn("批量处理用户消息失败, 转为逐条处理: {}", ex.getMessage());
+        }
+
+        for (var i = 0; i < messages.size(); i++) {
+            try {
+                receiveUser(channel, messages.get(i));
+            } catch (IOException ex) {
+                logger.error("用户消息转入延迟队列失败, 退回{}条消息: {}", messages.size() - i, ex.getMessage());
+                if (i > 0) {
+                    channel.basicAck(messages.get(i - 1).getMessageProperties().getDeliveryTag(), true);
+                }
+
+                channel.basicNack(last, true, true);
+                return;
+            }
+        }
+
+        channel.basicAck(last, true);
+    }
+
+    /**
+     * 在消息携带的请求上下文中处理单条新增用户消息,失败时连同消息头转入延迟队列
      *
      * @param channel Channel
      * @param message Message
      * @throws IOException IOException
      */
-    @RabbitHandler
-    @RabbitListener(queues = "insight.user")
-    public void receiveUser(Channel channel, Message message) throws IOException {
+    private void receiveUser(Channel channel, Message message) throws IOException {
+        var context = RequestContext.from(message.getMessageProperties());
+        var previous = RequestContext.attach(context);
         try {
-            String body = new String(message.getBody());
-            core.processUser(Json.toBean(body, UserDto.class));
+            core.processUser(toUser(message));
         } catch (Exception ex) {
-            logger.error("发生异常: {}", ex.getMessage());
-            channel.basicPublish(QueueConfig.DELAY_EXCHANGE, QueueConfig.DELAY_USER_QUEUE, null, message.getBody());
+            logger.error("requestId: {}. 发生异常: {}", RequestContext.currentRequestId(), ex.getMessage());
+            var properties = new AMQP.BasicProperties.Builder().headers(message.getMessageProperties().getHeaders()).build();
+            channel.basicPublish(QueueConfig.DELAY_EXCHANGE, QueueConfig.DELAY_USER_QUEUE, properties, message.getBody());
         } finally {
-            channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+            RequestContext.attach(previous);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 解析用户消息
+     *
+     * @param message Message
+     * @return 用户DTO
+     */
+    private UserDto toUser(Message message) {
+        String body = new String(message.getBody());
+        return Json.toBean(body, UserDto.class);
+    }
+}
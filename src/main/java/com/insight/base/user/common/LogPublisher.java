@@ -0,0 +1,351 @@
+package com.insight.base.user.common;
+
+import com.insight.utils.Json;
+import com.insight.utils.pojo.message.Log;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 操作日志异步发布器, 日志连同提交时的请求上下文先进入有界队列, 由后台线程分批发送并等待Broker确认。
+ * 确认方式取决于spring.rabbitmq.publisher-confirm-type: correlated时逐条等待确认, simple时按通道等待确认, 未配置时不等待确认。
+ * 发送失败的批次写入本地文件(SPILL策略)或暂停取出新日志并退避重试, 超过重试次数后才丢弃
+ */
+@Component
+public class LogPublisher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogPublisher.class);
+    private static final String EXCHANGE = "amq.topic";
+    private static final String ROUTING_KEY = "insight.log";
+    private static final long MAX_BACKOFF = 30000;
+
+    /**
+     * 队列已满时的处理策略
+     */
+    public enum Overflow {
+        /**
+         * 阻塞调用方至多block-timeout毫秒,仍无空间时丢弃
+         */
+        BLOCK,
+
+        /**
+         * 直接丢弃并计数
+         */
+        DROP,
+
+        /**
+         * 写入本地文件,Broker可用后重新发送
+         */
+        SPILL
+    }
+
+    private final RabbitTemplate template;
+    private final BlockingQueue<Entry> queue;
+    private final Overflow overflow;
+    private final int batchSize;
+    private final long blockTimeout;
+    private final long confirmTimeout;
+    private final int maxRetries;
+    private final long retryBackoff;
+    private final Path spillFile;
+    private final Timer publishTimer;
+    private final Counter dropped;
+    private final Counter spilled;
+    private final Counter failed;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * 构造方法
+     *
+     * @param template       RabbitTemplate
+     * @param registry       指标注册器
+     * @param capacity       队列容量
+     * @param overflow       队列已满时的处理策略
+     * @param batchSize      每批发送的日志数
+     * @param blockTimeout   BLOCK策略下的最长阻塞时长(毫秒)
+     * @param confirmTimeout 等待Broker确认的时长(毫秒)
+     * @param maxRetries     发送失败后的最大重试次数(SPILL策略下不重试,直接写入本地文件)
+     * @param retryBackoff   首次重试前的等待时长(毫秒),此后每次加倍,最长30秒
+     * @param spillFile      SPILL策略下的本地文件
+     */
+    public LogPublisher(RabbitTemplate template, MeterRegistry registry, @Value("${insight.user.log.capacity:10000}") int capacity,
+                        @Value("${insight.user.log.overflow:BLOCK}") Overflow overflow, @Value("${insight.user.log.batch-size:100}") int batchSize,
+                        @Value("${insight.user.log.block-timeout:1000}") long blockTimeout,
+                        @Value("${insight.user.log.confirm-timeout:5000}") long confirmTimeout,
+                        @Value("${insight.user.log.max-retries:5}") int maxRetries,
+                        @Value("${insight.user.log.retry-backoff:1000}") long retryBackoff,
+                        @Value("${insight.user.log.spill-file:./spill/operate-log.ndjson}") String spillFile) {
+        this.template = template;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflow = overflow;
+        this.batchSize = batchSize;
+        this.blockTimeout = blockTimeout;
+        this.confirmTimeout = confirmTimeout;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.spillFile = Path.of(spillFile);
+        this.publishTimer = registry.timer("log.publish");
+        this.dropped = registry.counter("log.dropped");
+        this.spilled = registry.counter("log.spilled");
+        this.failed = registry.counter("log.failed");
+        registry.gauge("log.queue.depth", queue, BlockingQueue::size);
+        var factory = template.getConnectionFactory();
+        if (!factory.isPublisherConfirms() && !factory.isSimplePublisherConfirms()) {
+            LOGGER.warn("未配置spring.rabbitmq.publisher-confirm-type, 操作日志发送后不等待Broker确认");
+        }
+
+        worker = new Thread(this::drain, "log-publisher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 提交操作日志,不等待发送。日志在提交时的请求上下文中发送
+     *
+     * @param log 操作日志
+     */
+    public void publish(Log log) {
+        var entry = new Entry(log, RequestContext.current());
+        if (queue.offer(entry)) {
+            return;
+        }
+
+        switch (overflow) {
+            case BLOCK -> {
+                try {
+                    if (queue.offer(entry, blockTimeout, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+
+                dropped.increment();
+            }
+            case SPILL -> spill(List.of(log));
+            default -> dropped.increment();
+        }
+    }
+
+    /**
+     * 停止接收并发送队列中剩余的日志,后台线程未能及时结束(如正在退避重试)时中断,剩余日志写入本地文件或丢弃
+     *
+     * @throws InterruptedException InterruptedException
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        worker.join(confirmTimeout * 2);
+        if (worker.isAlive()) {
+            worker.interrupt();
+            worker.join(confirmTimeout);
+        }
+
+        var rest = new ArrayList<Entry>();
+        queue.drainTo(rest);
+        if (rest.isEmpty()) {
+            return;
+        }
+
+        if (overflow == Overflow.SPILL) {
+            spill(rest.stream().map(Entry::log).toList());
+        } else {
+            dropped.increment(rest.size());
+            LOGGER.warn("停止时仍有{}条操作日志未发送, 已丢弃", rest.size());
+        }
+    }
+
+    /**
+     * 后台线程:分批取出日志并发送,队列空闲时重发本地文件中的日志
+     */
+    private void drain() {
+        var batch = new ArrayList<Entry>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    replay();
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                deliver(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 发送一批日志,失败时按策略写入本地文件,或在重试期间不再取出新日志并退避重试,重试次数用尽后丢弃
+     *
+     * @param batch 日志集合
+     */
+    private void deliver(List<Entry> batch) {
+        if (send(batch)) {
+            return;
+        }
+
+        if (overflow != Overflow.SPILL) {
+            for (var retry = 1; retry <= maxRetries; retry++) {
+                try {
+                    Thread.sleep(Math.min(retryBackoff << Math.min(retry - 1, 16), MAX_BACKOFF));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                if (send(batch)) {
+                    return;
+                }
+            }
+        }
+
+        var logs = batch.stream().map(Entry::log).toList();
+        if (overflow == Overflow.SPILL) {
+            spill(logs);
+        } else {
+            dropped.increment(logs.size());
+            LOGGER.error("{}条操作日志重试后仍发送失败, 已丢弃", logs.size());
+        }
+    }
+
+    /**
+     * 发送一批日志并等待Broker确认,每条日志在其提交时的请求上下文中发送
+     *
+     * @param batch 日志集合
+     * @return 是否发送成功
+     */
+    private boolean send(Collection<Entry> batch) {
+        var sample = Timer.start();
+        try {
+            var factory = template.getConnectionFactory();
+            if (factory.isPublisherConfirms()) {
+                var confirms = new ArrayList<CorrelationData>(batch.size());
+                for (var entry : batch) {
+                    var correlation = new CorrelationData();
+                    RequestContext.run(entry.context(), () -> template.convertAndSend(EXCHANGE, ROUTING_KEY, entry.log(), correlation));
+                    confirms.add(correlation);
+                }
+
+                var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeout);
+                for (var correlation : confirms) {
+                    var confirm = correlation.getFuture().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (!confirm.isAck()) {
+                        throw new AmqpException("Broker拒绝操作日志: " + confirm.getReason());
+                    }
+                }
+
+                return true;
+            }
+
+            var confirm = factory.isSimplePublisherConfirms();
+            template.invoke(operations -> {
+                batch.forEach(entry -> RequestContext.run(entry.context(), () -> operations.convertAndSend(EXCHANGE, ROUTING_KEY, entry.log())));
+                if (confirm) {
+                    operations.waitForConfirmsOrDie(confirmTimeout);
+                }
+
+                return null;
+            });
+
+            return true;
+        } catch (TimeoutException ex) {
+            failed.increment(batch.size());
+            LOGGER.error("发送{}条操作日志后{}毫秒内未收到Broker确认", batch.size(), confirmTimeout);
+            return false;
+        } catch (Exception ex) {
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+
+            failed.increment(batch.size());
+            LOGGER.error("发送{}条操作日志失败: {}", batch.size(), ex.getMessage());
+            return false;
+        } finally {
+            sample.stop(publishTimer);
+        }
+    }
+
+    /**
+     * 将日志追加写入本地文件
+     *
+     * @param logs 日志集合
+     */
+    private synchronized void spill(Collection<Log> logs) {
+        var lines = logs.stream().map(Json::toJson).toList();
+        try {
+            Files.createDirectories(spillFile.toAbsolutePath().getParent());
+            Files.write(spillFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            spilled.increment(lines.size());
+        } catch (IOException ex) {
+            dropped.increment(lines.size());
+            LOGGER.error("写入操作日志文件失败: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * 重新发送本地文件中的日志,发送失败的日志写回文件
+     */
+    private void replay() {
+        if (!running || !Files.exists(spillFile)) {
+            return;
+        }
+
+        List<Log> logs;
+        synchronized (this) {
+            try {
+                logs = Files.readAllLines(spillFile, StandardCharsets.UTF_8).stream().filter(i -> !i.isBlank())
+                        .map(i -> Json.toBean(i, Log.class)).toList();
+                Files.delete(spillFile);
+            } catch (IOException ex) {
+                LOGGER.error("读取操作日志文件失败: {}", ex.getMessage());
+                return;
+            }
+        }
+
+        for (var i = 0; i < logs.size(); i += batchSize) {
+            var batch = logs.subList(i, Math.min(logs.size(), i + batchSize)).stream().map(log -> new Entry(log, null)).toList();
+            if (!send(batch)) {
+                spill(logs.subList(i, logs.size()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * 待发送的日志及其提交时的请求上下文
+     *
+     * @param log     操作日志
+     * @param context 请求上下文
+     */
+    private record Entry(Log log, RequestContext context) {
+    }
+}
@@ -0,0 +1,188 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.dto.OrganizeDto;
+import com.insight.base.user.common.mapper.OrganizeMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 组织机构闭包索引, 维护ibu_organize_closure表供按组织机构查询用户时直接关联, 无需调用组织机构服务
+ */
+@Component
+public class OrgClosure {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrgClosure.class);
+
+    /**
+     * 组织机构变更广播频道,组织机构服务变更上下级关系后发布
+     */
+    public static final String CHANNEL = "Channel:Organize";
+    private static final String VERSION_KEY = "OrgClosure:Version";
+    private static final String LOCK_KEY = "Lock:OrgClosure";
+    private static final int BATCH = 2000;
+    private final OrganizeMapper mapper;
+    private final StringRedisTemplate redis;
+    private final TransactionTemplate transaction;
+
+    /**
+     * 同步线程,只保留一个待执行的同步任务,连续的变更通知合并为一次同步
+     */
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+            r -> {
+                var thread = new Thread(r, "org-closure");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+    private volatile Set<Long> known = Set.of();
+    private volatile String version;
+
+    /**
+     * 构造方法
+     *
+     * @param mapper      OrganizeMapper
+     * @param redis       StringRedisTemplate
+     * @param transaction 事务模板
+     * @param container   Redis消息订阅容器
+     */
+    public OrgClosure(OrganizeMapper mapper, StringRedisTemplate redis, TransactionTemplate transaction, RedisMessageListenerContainer container) {
+        this.mapper = mapper;
+        this.redis = redis;
+        this.transaction = transaction;
+
+        container.addMessageListener((message, pattern) -> executor.execute(this::sync), new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 闭包表中是否已包含指定的组织机构
+     *
+     * @param orgId 组织机构ID
+     * @return 是否包含
+     */
+    public boolean contains(Long orgId) {
+        return orgId != null && known.contains(orgId);
+    }
+
+    /**
+     * 应用启动后在同步线程中同步闭包表
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        executor.execute(this::sync);
+    }
+
+    /**
+     * 停止同步线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 比较组织机构数据版本,发生变化时重建闭包表(多个节点中仅一个执行重建)
+     */
+    @Scheduled(fixedDelayString = "${insight.user.org.sync-interval:300000}", initialDelayString = "${insight.user.org.sync-interval:300000}")
+    public synchronized void sync() {
+        try {
+            var current = mapper.getVersion();
+            if (current.equals(version)) {
+                return;
+            }
+
+            if (!current.equals(redis.opsForValue().get(VERSION_KEY))) {
+                var lock = RedisLock.tryLock(redis, LOCK_KEY, Duration.ofMinutes(10));
+                if (lock == null) {
+                    return;
+                }
+
+                try (lock) {
+                    rebuild();
+                    redis.opsForValue().set(VERSION_KEY, current);
+                }
+            }
+
+            known = Set.copyOf(mapper.getOrganizes().stream().map(OrganizeDto::getId).toList());
+            version = current;
+        } catch (Exception ex) {
+            LOGGER.error("组织机构闭包同步失败: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * 根据上下级关系计算闭包并在一个事务中重写闭包表
+     */
+    private void rebuild() {
+        var start = System.currentTimeMillis();
+        var children = new HashMap<Long, List<Long>>();
+        var nodes = mapper.getOrganizes();
+        for (var node : nodes) {
+            if (node.getParentId() != null) {
+                children.computeIfAbsent(node.getParentId(), k -> new ArrayList<>()).add(node.getId());
+            }
+        }
+
+        transaction.executeWithoutResult(status -> {
+            mapper.clearClosures();
+
+            var batch = new HashMap<Long, List<Long>>();
+            var size = 0;
+            for (var node : nodes) {
+                var descendants = descendants(node.getId(), children);
+                batch.put(node.getId(), descendants);
+                size += descendants.size();
+                if (size >= BATCH) {
+                    mapper.addClosures(batch);
+                    batch = new HashMap<>();
+                    size = 0;
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                mapper.addClosures(batch);
+            }
+        });
+
+        LOGGER.info("组织机构闭包重建完成,组织机构数{},耗时{}毫秒", nodes.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 获取组织机构的全部下级组织机构(含自身)
+     *
+     * @param id       组织机构ID
+     * @param children 上级-下级组织机构映射
+     * @return 组织机构ID集合
+     */
+    private static List<Long> descendants(Long id, Map<Long, List<Long>> children) {
+        var list = new ArrayList<Long>();
+        var visited = new HashSet<Long>();
+        var stack = new ArrayDeque<Long>();
+        stack.push(id);
+        while (!stack.isEmpty()) {
+            var current = stack.pop();
+            if (!visited.add(current)) {
+                continue;
+            }
+
+            list.add(current);
+            children.getOrDefault(current, List.of()).forEach(stack::push);
+        }
+
+        return list;
+    }
+}
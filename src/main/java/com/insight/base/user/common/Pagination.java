@@ -0,0 +1,117 @@
+package com.insight.base.user.common;
+
+import com.github.pagehelper.PageHelper;
+import com.insight.base.user.common.dto.CursorPageDto;
+import com.insight.base.user.common.dto.UserSearch;
+import com.insight.utils.ReplyHelper;
+import com.insight.utils.Util;
+import com.insight.utils.pojo.base.BusinessException;
+import com.insight.utils.pojo.base.Reply;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 分页辅助类
+ */
+public final class Pagination {
+    private static final int DEFAULT_SIZE = 20;
+    private static final int MAX_SIZE = 1000;
+
+    private Pagination() {
+    }
+
+    /**
+     * 游标分页查询,查询条件以id > 游标ID的方式定位,不使用OFFSET。
+     * 游标分页固定按ID排序,指定orderBy时拒绝请求,避免返回与排序条件不符的分页数据
+     *
+     * @param search 查询实体类
+     * @param query  查询方法
+     * @param idOf   获取记录ID的方法
+     * @param <T>    记录类型
+     * @return Reply
+     */
+    public static <T> Reply cursorPage(UserSearch search, Supplier<List<T>> query, Function<T, Long> idOf) {
+        if (Util.isNotEmpty(search.getOrderBy())) {
+            throw new BusinessException("游标分页仅支持按ID排序,请勿指定orderBy");
+        }
+
+        Long total = null;
+        if (Boolean.TRUE.equals(search.getTotal())) {
+            total = PageHelper.count(query::get);
+        }
+
+        var size = pageSize(search);
+        search.setAfterId(decode(search.getCursor()));
+        search.setLimit(size + 1);
+        var list = query.get();
+        search.setAfterId(null);
+        search.setLimit(null);
+
+        var page = new CursorPageDto<T>();
+        page.setTotal(total);
+        if (list.size() > size) {
+            list = list.subList(0, size);
+            page.setNext(encode(idOf.apply(list.get(size - 1))));
+        }
+
+        page.setList(list);
+        return ReplyHelper.success(page);
+    }
+
+    /**
+     * 获取每页记录数
+     *
+     * @param search 查询实体类
+     * @return 每页记录数
+     */
+    public static int pageSize(UserSearch search) {
+        Integer size = search.getPageSize();
+        return size == null || size <= 0 ? DEFAULT_SIZE : Math.min(size, MAX_SIZE);
+    }
+
+    /**
+     * 校验每页记录数不超过上限
+     *
+     * @param search 查询实体类
+     */
+    public static void checkPageSize(UserSearch search) {
+        Integer size = search.getPageSize();
+        if (size != null && size > MAX_SIZE) {
+            throw new BusinessException("每页记录数不能超过" + MAX_SIZE);
+        }
+    }
+
+    /**
+     * 生成游标
+     *
+     * @param id 记录ID
+     * @return 游标
+     */
+    private static String encode(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param cursor 游标
+     * @return 记录ID
+     */
+    private static Long decode(String cursor) {
+        if (Util.isEmpty(cursor)) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException ex) {
+            throw new BusinessException("无效的分页游标");
+        }
+    }
+}
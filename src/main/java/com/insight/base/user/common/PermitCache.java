@@ -0,0 +1,126 @@
+package com.insight.base.user.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.insight.base.user.common.dto.FuncPermitDto;
+import com.insight.base.user.common.dto.PermitRowDto;
+import com.insight.base.user.common.mapper.UserMapper;
+import com.insight.utils.Util;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 功能授权缓存, 以排序后角色ID集合的指纹为键, 角色相同的用户共用同一份授权数据;
+ *         授权数据由一次查询得到的功能授权行在内存中组装
+ */
+@Component
+public class PermitCache {
+
+    /**
+     * 功能授权变更广播频道,角色授权或导航/功能数据变更时由相关服务发布。
+     * 目前尚无服务发布该频道,授权变更依赖较短的缓存有效时长生效
+     */
+    public static final String CHANNEL = "Channel:Permit";
+    private final UserMapper mapper;
+    private final Cache<String, List<FuncPermitDto>> cache;
+
+    /**
+     * 构造方法
+     *
+     * @param mapper    UserMapper
+     * @param container Redis消息订阅容器
+     * @param registry  指标注册器
+     * @param size      最大缓存条目数
+     * @param ttl       缓存有效时长(秒),即授权变更的最长生效延迟
+     */
+    public PermitCache(UserMapper mapper, RedisMessageListenerContainer container, MeterRegistry registry,
+                       @Value("${insight.user.permit.size:1000}") long size, @Value("${insight.user.permit.ttl:30}") long ttl) {
+        this.mapper = mapper;
+        this.cache = Caffeine.newBuilder().maximumSize(size).expireAfterWrite(Duration.ofSeconds(ttl)).recordStats().build();
+
+        CaffeineCacheMetrics.monitor(registry, cache, "permit");
+        container.addMessageListener((message, pattern) -> cache.invalidateAll(), new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 获取用户功能授权
+     *
+     * @param userId 用户ID
+     * @return 功能授权集合
+     */
+    public List<FuncPermitDto> get(Long userId) {
+        var roleIds = mapper.getRoleIds(userId);
+        if (roleIds.isEmpty()) {
+            return List.of();
+        }
+
+        var key = Util.md5(roleIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        return cache.get(key, k -> assemble(mapper.getPermitRows(roleIds)));
+    }
+
+    /**
+     * 单次遍历功能授权行,生成应用、模块组、导航和功能的授权数据并按索引排序;
+     * 上级ID取自各级数据本身的关联字段,上级数据不存在时仍保留原值
+     *
+     * @param rows 功能授权行集合
+     * @return 功能授权集合
+     */
+    static List<FuncPermitDto> assemble(List<PermitRowDto> rows) {
+        var map = new LinkedHashMap<Long, FuncPermitDto>(rows.size() * 2);
+        for (var row : rows) {
+            if (row.getAppId() != null) {
+                map.computeIfAbsent(row.getAppId(), k -> permit(k, null, row.getAppIndex(), 0, row.getAppName(), null));
+            }
+
+            if (row.getGroupId() != null) {
+                map.computeIfAbsent(row.getGroupId(), k -> permit(k, row.getGroupParentId(), row.getGroupIndex(), row.getGroupType(), row.getGroupName(), null));
+            }
+
+            if (row.getNavId() != null) {
+                map.computeIfAbsent(row.getNavId(), k -> permit(k, row.getNavParentId(), row.getNavIndex(), row.getNavType(), row.getNavName(), null));
+            }
+
+            map.put(row.getId(), permit(row.getId(), row.getParentId(), row.getIndex(), row.getPermit() + 3, row.getName(), row.getPermit()));
+        }
+
+        var list = new ArrayList<>(map.values());
+        list.sort(Comparator.comparing(FuncPermitDto::getIndex, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * 生成功能授权数据
+     *
+     * @param id       ID
+     * @param parentId 父级ID
+     * @param index    索引
+     * @param type     类型
+     * @param name     名称
+     * @param permit   授权,导航数据为null
+     * @return 功能授权DTO
+     */
+    private static FuncPermitDto permit(Long id, Long parentId, Integer index, Integer type, String name, Integer permit) {
+        var dto = new FuncPermitDto();
+        dto.setId(id);
+        dto.setParentId(parentId);
+        dto.setIndex(index);
+        dto.setType(type);
+        dto.setName(name);
+        if (permit != null) {
+            dto.setRemark(permit == 0 ? "禁止" : "允许");
+            dto.setPermit(permit > 0);
+        }
+
+        return dto;
+    }
+}
@@ -0,0 +1,58 @@
+package com.insight.base.user.common;
+
+import com.insight.utils.Util;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark Redis互斥锁, 以随机令牌标识持有者, 释放时仅删除自己持有的锁
+ */
+public final class RedisLock implements AutoCloseable {
+
+    /**
+     * 令牌一致时才删除锁,避免锁过期后误删其他节点获得的锁
+     */
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+              return redis.call('del', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+    private final StringRedisTemplate redis;
+    private final String key;
+    private final String token;
+
+    private RedisLock(StringRedisTemplate redis, String key, String token) {
+        this.redis = redis;
+        this.key = key;
+        this.token = token;
+    }
+
+    /**
+     * 尝试获取锁
+     *
+     * @param redis StringRedisTemplate
+     * @param key   锁的键
+     * @param ttl   锁的有效时长
+     * @return 锁,已被其他持有者获取时返回null
+     */
+    public static RedisLock tryLock(StringRedisTemplate redis, String key, Duration ttl) {
+        var token = Util.uuid();
+        var locked = redis.opsForValue().setIfAbsent(key, token, ttl);
+        return Boolean.TRUE.equals(locked) ? new RedisLock(redis, key, token) : null;
+    }
+
+    /**
+     * 释放锁
+     */
+    @Override
+    public void close() {
+        redis.execute(RELEASE, List.of(key), token);
+    }
+}
@@ -0,0 +1,167 @@
+package com.insight.base.user.common;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.function.BiConsumer;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 请求上下文, 请求进入时一次性读取需透传的请求头, 供Feign调用、消息发送和后台任务使用
+ */
+public final class RequestContext {
+
+    /**
+     * 需透传的请求头
+     */
+    public static final String FINGERPRINT = "fingerprint";
+    public static final String REQUEST_ID = "requestId";
+    public static final String LOGIN_INFO = "loginInfo";
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+    private final String fingerprint;
+    private final String requestId;
+    private final String loginInfo;
+
+    /**
+     * 构造方法
+     *
+     * @param fingerprint 客户端指纹
+     * @param requestId   请求ID
+     * @param loginInfo   用户关键信息(Base64)
+     */
+    public RequestContext(String fingerprint, String requestId, String loginInfo) {
+        this.fingerprint = fingerprint;
+        this.requestId = requestId;
+        this.loginInfo = loginInfo;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getLoginInfo() {
+        return loginInfo;
+    }
+
+    /**
+     * 获取当前线程的请求上下文
+     *
+     * @return 请求上下文,不在请求中时返回null
+     */
+    public static RequestContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 获取当前线程的请求ID
+     *
+     * @return 请求ID,不在请求中时返回null
+     */
+    public static String currentRequestId() {
+        var context = CURRENT.get();
+        return context == null ? null : context.requestId;
+    }
+
+    /**
+     * 设置当前线程的请求上下文
+     *
+     * @param context 请求上下文,为null时清除
+     * @return 原请求上下文
+     */
+    public static RequestContext attach(RequestContext context) {
+        var previous = CURRENT.get();
+        if (context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+
+        return previous;
+    }
+
+    /**
+     * 将当前线程的请求上下文复制到后台任务,可直接用作TaskDecorator
+     *
+     * @param task 后台任务
+     * @return 携带请求上下文的任务
+     */
+    public static Runnable wrap(Runnable task) {
+        var context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+
+        return () -> run(context, task);
+    }
+
+    /**
+     * 在指定的请求上下文中执行任务
+     *
+     * @param context 请求上下文
+     * @param task    任务
+     */
+    public static void run(RequestContext context, Runnable task) {
+        var previous = attach(context);
+        try {
+            task.run();
+        } finally {
+            attach(previous);
+        }
+    }
+
+    /**
+     * 从消息头还原请求上下文
+     *
+     * @param properties 消息属性
+     * @return 请求上下文,消息未携带请求头时返回null
+     */
+    public static RequestContext from(MessageProperties properties) {
+        String requestId = properties.getHeader(REQUEST_ID);
+        String loginInfo = properties.getHeader(LOGIN_INFO);
+        if (requestId == null && loginInfo == null) {
+            return null;
+        }
+
+        return new RequestContext(properties.getHeader(FINGERPRINT), requestId, loginInfo);
+    }
+
+    /**
+     * 将当前线程的请求上下文写入消息头,可用作RabbitTemplate的发送前处理器
+     *
+     * @param message 消息
+     * @return 消息
+     */
+    public static Message stamp(Message message) {
+        var context = CURRENT.get();
+        if (context != null) {
+            var properties = message.getMessageProperties();
+            context.forEach(properties::setHeader);
+        }
+
+        return message;
+    }
+
+    /**
+     * 遍历非空的请求头
+     *
+     * @param consumer 请求头名称和值的消费者
+     */
+    public void forEach(BiConsumer<String, String> consumer) {
+        if (fingerprint != null) {
+            consumer.accept(FINGERPRINT, fingerprint);
+        }
+
+        if (requestId != null) {
+            consumer.accept(REQUEST_ID, requestId);
+        }
+
+        if (loginInfo != null) {
+            consumer.accept(LOGIN_INFO, loginInfo);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.insight.base.user.common;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 事务辅助类
+ */
+public final class TransactionHelper {
+
+    private TransactionHelper() {
+    }
+
+    /**
+     * 在当前事务提交后执行指定操作,无事务时立即执行
+     *
+     * @param action 操作
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,331 @@
+package com.insight.base.user.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.insight.base.user.common.mapper.UserMapper;
+import com.insight.utils.Json;
+import com.insight.utils.Util;
+import com.insight.utils.pojo.user.User;
+import com.insight.utils.pojo.user.UserDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户两级缓存(本地缓存 -> Redis User:{id} -> 数据库)
+ */
+@Component
+public class UserCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserCache.class);
+
+    /**
+     * 用户缓存失效广播频道
+     */
+    public static final String CHANNEL = "Channel:User";
+
+    /**
+     * 仅在缓存存在时批量写入字段,避免生成不完整的用户缓存
+     */
+    private static final byte[] HSET_IF_EXISTS = """
+            if redis.call('exists', KEYS[1]) == 1 then
+              return redis.call('hset', KEYS[1], unpack(ARGV))
+            end
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
+    private static final int CHUNK_SIZE = 1000;
+    private final UserMapper mapper;
+    private final StringRedisTemplate redis;
+    private final Cache<Long, User> cache;
+    private final AtomicLong version = new AtomicLong();
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    /**
+     * 构造方法
+     *
+     * @param mapper    UserMapper
+     * @param redis     StringRedisTemplate
+     * @param container Redis消息订阅容器
+     * @param registry  指标注册器
+     * @param size      本地缓存最大条目数
+     * @param ttl       本地缓存有效时长(秒)
+     */
+    public UserCache(UserMapper mapper, StringRedisTemplate redis, RedisMessageListenerContainer container, MeterRegistry registry,
+                     @Value("${insight.user.cache.size:10000}") long size, @Value("${insight.user.cache.ttl:300}") long ttl) {
+        this.mapper = mapper;
+        this.redis = redis;
+        this.cache = Caffeine.newBuilder().maximumSize(size).expireAfterWrite(Duration.ofSeconds(ttl)).recordStats().build();
+        this.redisHits = registry.counter("user.cache.redis", "result", "hit");
+        this.redisMisses = registry.counter("user.cache.redis", "result", "miss");
+
+        CaffeineCacheMetrics.monitor(registry, cache, "user");
+        container.addMessageListener((message, pattern) -> {
+            var body = new String(message.getBody(), StandardCharsets.UTF_8);
+            invalidate(Long.valueOf(body));
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 读取用户数据,依次读取本地缓存、Redis和数据库
+     *
+     * @param id 用户ID
+     * @return 用户数据,用户不存在时返回null
+     */
+    public User get(Long id) {
+        if (id == null) {
+            return null;
+        }
+
+        return cache.get(id, this::load);
+    }
+
+    /**
+     * 批量读取用户数据:本地缓存未命中的用户以一次管道往返读取Redis,仍未命中的用户以一次查询读取数据库。
+     * 与单个读取一致,数据库数据不回填Redis;读取期间发生失效时,新读取的数据不保留在本地缓存中
+     *
+     * @param ids 用户ID集合
+     * @return 用户ID-用户数据映射,不包含不存在的用户
+     */
+    public Map<Long, User> getAll(Collection<Long> ids) {
+        var result = new HashMap<Long, User>(cache.getAllPresent(ids));
+        var misses = ids.stream().filter(id -> id != null && !result.containsKey(id)).distinct().toList();
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        var current = version.get();
+        var loaded = new HashMap<Long, User>(misses.size());
+        for (var i = 0; i < misses.size(); i += CHUNK_SIZE) {
+            var chunk = misses.subList(i, Math.min(misses.size(), i + CHUNK_SIZE));
+            var hashes = redis.executePipelined((RedisCallback<Object>) connection -> {
+                chunk.forEach(id -> connection.hashCommands().hGetAll(("User:" + id).getBytes(StandardCharsets.UTF_8)));
+                return null;
+            });
+
+            var loads = new ArrayList<Long>();
+            for (var j = 0; j < chunk.size(); j++) {
+                @SuppressWarnings("unchecked")
+                var user = toUser((Map<Object, Object>) hashes.get(j));
+                if (user == null) {
+                    loads.add(chunk.get(j));
+                } else {
+                    loaded.put(user.getId(), user);
+                }
+            }
+
+            redisHits.increment(chunk.size() - loads.size());
+            redisMisses.increment(loads.size());
+            if (!loads.isEmpty()) {
+                mapper.getUsersByIds(loads).forEach(u -> loaded.put(u.getId(), u));
+            }
+        }
+
+        cache.putAll(loaded);
+        if (version.get() != current) {
+            cache.invalidateAll(loaded.keySet());
+        }
+
+        result.putAll(loaded);
+        return result;
+    }
+
+    /**
+     * 使指定用户的缓存失效,在当前事务提交后广播至所有节点
+     *
+     * @param id 用户ID
+     */
+    public void evict(Long id) {
+        if (id == null) {
+            return;
+        }
+
+        TransactionHelper.afterCommit(() -> {
+            invalidate(id);
+            redis.convertAndSend(CHANNEL, id.toString());
+        });
+    }
+
+    /**
+     * 根据新旧用户数据的差异更新缓存:变更字段、失效的登录标识清理和失效广播在事务提交后以一次往返完成
+     *
+     * @param old  原用户数据
+     * @param user 新用户数据
+     */
+    public void update(User old, UserDto user) {
+        var fields = new LinkedHashMap<String, String>();
+        diff(fields, "name", old.getName(), user.getName());
+        diff(fields, "account", old.getAccount(), user.getAccount());
+        diff(fields, "mobile", old.getMobile(), user.getMobile());
+        diff(fields, "email", old.getEmail(), user.getEmail());
+        diff(fields, "nickname", old.getNickname(), user.getNickname());
+        diff(fields, "unionId", old.getUnionId(), user.getUnionId());
+        diff(fields, "headImg", old.getHeadImg(), user.getHeadImg());
+        diff(fields, "remark", old.getRemark(), user.getRemark());
+        diff(fields, "invalid", old.getInvalid(), user.getInvalid());
+
+        var keys = new ArrayList<String>();
+        if (fields.containsKey("account")) {
+            keys.add("ID:" + old.getAccount());
+        }
+
+        if (fields.containsKey("mobile") && Util.isNotEmpty(old.getMobile())) {
+            keys.add("ID:" + old.getMobile());
+        }
+
+        if (fields.containsKey("email") && Util.isNotEmpty(old.getEmail())) {
+            keys.add("ID:" + old.getEmail());
+        }
+
+        mutate(user.getId(), fields, keys);
+    }
+
+    /**
+     * 更新缓存中指定的用户字段
+     *
+     * @param id    用户ID
+     * @param field 字段名
+     * @param value 字段值
+     */
+    public void update(Long id, String field, Object value) {
+        mutate(id, Map.of(field, String.valueOf(value)), List.of());
+    }
+
+    /**
+     * 清理已删除用户的全部缓存
+     *
+     * @param user 用户数据
+     */
+    public void remove(User user) {
+        var keys = new ArrayList<String>();
+        for (var key : new String[]{user.getAccount(), user.getMobile(), user.getEmail(), user.getUnionId()}) {
+            if (Util.isNotEmpty(key)) {
+                keys.add("ID:" + key);
+            }
+        }
+
+        keys.add("User:" + user.getId());
+        keys.add("UserToken:" + user.getId());
+        mutate(user.getId(), Map.of(), keys);
+    }
+
+    /**
+     * 在事务提交后以一次管道往返写入用户字段、异步删除(UNLINK)失效键并广播缓存失效
+     *
+     * @param id     用户ID
+     * @param fields 变更字段
+     * @param keys   需删除的键
+     */
+    private void mutate(Long id, Map<String, String> fields, List<String> keys) {
+        TransactionHelper.afterCommit(() -> {
+            invalidate(id);
+            redis.executePipelined((RedisCallback<Object>) connection -> {
+                if (!fields.isEmpty()) {
+                    var args = new byte[fields.size() * 2 + 1][];
+                    args[0] = ("User:" + id).getBytes(StandardCharsets.UTF_8);
+                    var i = 1;
+                    for (var entry : fields.entrySet()) {
+                        args[i++] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                        args[i++] = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                    }
+
+                    connection.scriptingCommands().eval(HSET_IF_EXISTS, ReturnType.INTEGER, 1, args);
+                }
+
+                if (!keys.isEmpty()) {
+                    var args = keys.stream().map(k -> k.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+                    connection.keyCommands().unlink(args);
+                }
+
+                var channel = CHANNEL.getBytes(StandardCharsets.UTF_8);
+                connection.pubSubCommands().publish(channel, id.toString().getBytes(StandardCharsets.UTF_8));
+                return null;
+            });
+        });
+    }
+
+    /**
+     * 比较字段新旧值,值发生变化时加入变更集合
+     *
+     * @param fields 变更集合
+     * @param field  字段名
+     * @param old    原值
+     * @param value  新值
+     */
+    private static void diff(Map<String, String> fields, String field, Object old, Object value) {
+        if (value != null && !value.equals(old)) {
+            fields.put(field, String.valueOf(value));
+        }
+    }
+
+    /**
+     * 使本地缓存失效,先递增失效版本,供批量读取判断读取期间是否发生失效
+     *
+     * @param id 用户ID
+     */
+    private void invalidate(Long id) {
+        version.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    /**
+     * 从Redis或数据库加载用户数据
+     *
+     * @param id 用户ID
+     * @return 用户数据
+     */
+    private User load(Long id) {
+        var user = readHash(id);
+        if (user != null) {
+            redisHits.increment();
+            return user;
+        }
+
+        redisMisses.increment();
+        return mapper.getUser(id);
+    }
+
+    /**
+     * 读取Redis中的用户数据,数据不完整时返回null
+     *
+     * @param id 用户ID
+     * @return 用户数据
+     */
+    private User readHash(Long id) {
+        return toUser(redis.opsForHash().entries("User:" + id));
+    }
+
+    /**
+     * 解析Redis中的用户数据,数据不完整时返回null
+     *
+     * @param map 用户缓存数据
+     * @return 用户数据
+     */
+    private static User toUser(Map<Object, Object> map) {
+        if (map == null || map.isEmpty() || !map.containsKey("id") || !map.containsKey("code") || !map.containsKey("account")) {
+            return null;
+        }
+
+        try {
+            return Json.toBean(Json.toJson(map), User.class);
+        } catch (Exception ex) {
+            LOGGER.debug("用户缓存数据解析失败: {}", ex.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.dto.CursorPageDto;
+import com.insight.base.user.common.dto.UserChangeDto;
+import com.insight.base.user.common.mapper.UserMapper;
+import com.insight.utils.pojo.base.BusinessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户变更日志, 下游缓存和检索索引以变更序号为游标增量同步用户数据
+ */
+@Component
+public class UserChangeLog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserChangeLog.class);
+    private static final String PURGED_KEY = "UserChange:Purged";
+    private static final String LOCK_KEY = "Lock:UserChange";
+    private static final int DEFAULT_SIZE = 500;
+    private static final int MAX_SIZE = 5000;
+    private final UserMapper mapper;
+    private final StringRedisTemplate redis;
+    private final int lag;
+    private final int retention;
+
+    /**
+     * 构造方法
+     *
+     * @param mapper    UserMapper
+     * @param redis     StringRedisTemplate
+     * @param lag       变更可见的延迟时长(秒),变更时间取自触发器所在语句的执行时间而非事务提交时间,需大于最长事务时长
+     * @param retention 变更保留天数
+     */
+    public UserChangeLog(UserMapper mapper, StringRedisTemplate redis, @Value("${insight.user.change.lag:60}") int lag,
+                         @Value("${insight.user.change.retention:7}") int retention) {
+        this.mapper = mapper;
+        this.redis = redis;
+        this.lag = lag;
+        this.retention = retention;
+    }
+
+    /**
+     * 获取指定序号之后发生变更的用户
+     *
+     * @param after 起始序号(不含),为空时只返回当前序号
+     * @param size  最大变更数
+     * @return 用户变更集合及下次同步的起始序号
+     */
+    public CursorPageDto<UserChangeDto> getChanges(Long after, Integer size) {
+        var page = new CursorPageDto<UserChangeDto>();
+        if (after == null) {
+            page.setList(List.of());
+            page.setNext(String.valueOf(mapper.getMaxChangeSeq()));
+            return page;
+        }
+
+        var purged = redis.opsForValue().get(PURGED_KEY);
+        if (purged != null && after < Long.parseLong(purged)) {
+            throw new BusinessException("同步游标已过期, 请重新全量同步");
+        }
+
+        var limit = size == null || size <= 0 ? DEFAULT_SIZE : Math.min(size, MAX_SIZE);
+        var upper = mapper.getChangeWatermark(after, limit, lag);
+        if (upper != null) {
+            var gaps = upper - after - mapper.countChanges(after, upper);
+            if (gaps > 0) {
+                LOGGER.warn("变更序号{}~{}之间有{}个空缺, 若为尚未提交的事务, 其变更将被跳过, 请确认insight.user.change.lag({}秒)大于最长事务时长",
+                        after, upper, gaps, lag);
+            }
+        }
+
+        page.setList(upper == null ? List.of() : mapper.getChanges(after, upper));
+        page.setNext(String.valueOf(upper == null ? after : upper));
+        return page;
+    }
+
+    /**
+     * 分批删除超过保留天数的变更(多个节点中仅一个执行)
+     */
+    @Scheduled(cron = "${insight.user.change.purge-cron:0 0 4 * * ?}")
+    public void purge() {
+        var lock = RedisLock.tryLock(redis, LOCK_KEY, Duration.ofHours(1));
+        if (lock == null) {
+            return;
+        }
+
+        try (lock) {
+            var seq = mapper.getExpiredChangeSeq(retention);
+            if (seq == null) {
+                return;
+            }
+
+            redis.opsForValue().set(PURGED_KEY, seq.toString());
+            var count = 0;
+            int removed;
+            do {
+                removed = mapper.removeChanges(seq);
+                count += removed;
+            } while (removed > 0);
+
+            LOGGER.info("用户变更日志清理完成,删除{}条,截止序号{}", count, seq);
+        }
+    }
+}
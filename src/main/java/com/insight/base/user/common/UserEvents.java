@@ -0,0 +1,154 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.config.QueueConfig;
+import com.insight.base.user.common.dto.UserEventDto;
+import com.insight.base.user.common.mapper.UserMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户变更事件, 在业务事务中写入发件箱表, 事务提交后发布到insight.user.event交换机(路由键user.{type})
+ */
+@Component
+public class UserEvents {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserEvents.class);
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    public static final String STATUS = "status";
+    public static final String INVITED = "invited";
+    public static final String REMOVED = "removed";
+    public static final String PASSWORD = "password";
+    private static final String LOCK_KEY = "Lock:UserEvent";
+    private static final int BATCH = 500;
+    private final UserMapper mapper;
+    private final RabbitTemplate template;
+    private final StringRedisTemplate redis;
+    private final long confirmTimeout;
+    private final Counter published;
+
+    /**
+     * 发布线程,只保留一个待执行的发布任务,多次提交合并为一次
+     */
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+            r -> {
+                var thread = new Thread(r, "user-event");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    /**
+     * 构造方法
+     *
+     * @param mapper         UserMapper
+     * @param template       RabbitTemplate
+     * @param redis          StringRedisTemplate
+     * @param registry       指标注册器
+     * @param confirmTimeout 等待Broker确认的时长(毫秒)
+     */
+    public UserEvents(UserMapper mapper, RabbitTemplate template, StringRedisTemplate redis, MeterRegistry registry,
+                      @Value("${insight.user.event.confirm-timeout:5000}") long confirmTimeout) {
+        this.mapper = mapper;
+        this.template = template;
+        this.redis = redis;
+        this.confirmTimeout = confirmTimeout;
+        this.published = registry.counter("user.event.published");
+    }
+
+    /**
+     * 在当前事务中写入用户变更事件,事务提交后发布
+     *
+     * @param userId   用户ID
+     * @param tenantId 租户ID
+     * @param type     事件类型
+     * @param fields   变更字段
+     */
+    public void add(Long userId, Long tenantId, String type, Collection<String> fields) {
+        var list = fields == null || fields.isEmpty() ? null : String.join(",", fields);
+        add(List.of(new UserEventDto(userId, tenantId, type, list)));
+    }
+
+    /**
+     * 在当前事务中写入用户变更事件,事务提交后发布
+     *
+     * @param events 事件集合
+     */
+    public void add(List<UserEventDto> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        mapper.addEvents(events);
+        TransactionHelper.afterCommit(() -> executor.execute(this::poll));
+    }
+
+    /**
+     * 按顺序发布发件箱中的事件,发布成功后删除(多个节点中仅一个执行),
+     * 同时作为事务提交后未及时发布(如进程退出)的补偿
+     */
+    @Scheduled(fixedDelayString = "${insight.user.event.interval:10000}")
+    public void poll() {
+        var lock = RedisLock.tryLock(redis, LOCK_KEY, Duration.ofMinutes(1));
+        if (lock == null) {
+            return;
+        }
+
+        try (lock) {
+            List<UserEventDto> events;
+            do {
+                events = mapper.getEvents(BATCH);
+                if (events.isEmpty()) {
+                    return;
+                }
+
+                send(events);
+                mapper.removeEvents(events.stream().map(UserEventDto::getId).toList());
+                published.increment(events.size());
+            } while (events.size() == BATCH);
+        } catch (Exception ex) {
+            LOGGER.error("发布用户变更事件失败: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * 停止发布线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 在一个通道中发送一批事件并等待Broker确认
+     *
+     * @param events 事件集合
+     */
+    private void send(List<UserEventDto> events) {
+        var confirm = template.getConnectionFactory().isSimplePublisherConfirms();
+        template.invoke(operations -> {
+            events.forEach(event -> operations.convertAndSend(QueueConfig.USER_EVENT_EXCHANGE, "user." + event.getType(), event));
+            if (confirm) {
+                operations.waitForConfirmsOrDie(confirmTimeout);
+            }
+
+            return null;
+        });
+    }
+}
@@ -0,0 +1,494 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.dto.UserSearch;
+import com.insight.base.user.common.mapper.UserMapper;
+import com.insight.utils.pojo.user.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户关键词检索索引, 以二元组(bigram)倒排索引将关键词解析为候选用户ID, 再由SQL按主键校验匹配条件
+ */
+@Component
+public class UserIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserIndex.class);
+
+    /**
+     * 用户索引变更广播频道
+     */
+    public static final String CHANNEL = "Channel:UserIndex";
+    private static final int GRAM = 2;
+    private static final int BATCH = 500;
+    private final UserMapper mapper;
+    private final StringRedisTemplate redis;
+    private final Timer timer;
+    private final int maxCandidates;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 索引变更在单一线程中按到达顺序处理,同一用户的先后两次变更不会以相反的顺序写入索引
+     */
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            r -> {
+                var thread = new Thread(r, "user-index-apply");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+    private volatile State state;
+    private volatile long buildMillis;
+
+    /**
+     * 构造方法
+     *
+     * @param mapper        UserMapper
+     * @param redis         StringRedisTemplate
+     * @param container     Redis消息订阅容器
+     * @param registry      指标注册器
+     * @param maxCandidates 候选用户数上限,超出时回退为SQL检索
+     */
+    public UserIndex(UserMapper mapper, StringRedisTemplate redis, RedisMessageListenerContainer container, MeterRegistry registry,
+                     @Value("${insight.user.index.max-candidates:5000}") int maxCandidates) {
+        this.mapper = mapper;
+        this.redis = redis;
+        this.maxCandidates = maxCandidates;
+        this.timer = Timer.builder("user.index.query").register(registry);
+
+        Gauge.builder("user.index.users", this, i -> i.state == null ? 0 : i.state.count()).register(registry);
+        Gauge.builder("user.index.size", this, i -> i.state == null ? 0 : i.state.sizeInBytes()).baseUnit("bytes").register(registry);
+        Gauge.builder("user.index.build", this, i -> i.buildMillis / 1000.0).baseUnit("seconds").register(registry);
+        container.addMessageListener((message, pattern) -> {
+            var body = new String(message.getBody(), StandardCharsets.UTF_8);
+            submit(Arrays.stream(body.split(",")).map(Long::valueOf).toList());
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 应用启动后在后台线程中构建索引,构建完成前关键词检索使用SQL
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        var thread = new Thread(this::rebuild, "user-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 以流式读取方式全量重建索引,清理已失效的检索词
+     */
+    @Scheduled(cron = "${insight.user.index.cron:0 0 4 * * ?}")
+    public void rebuild() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            var start = System.currentTimeMillis();
+            var next = new State();
+            mapper.scanUsers(context -> next.add(context.getResultObject()));
+            mapper.scanTenantUsers(context -> {
+                var relation = context.getResultObject();
+                next.addTenant(relation.getTenantId(), relation.getUserId());
+            });
+            next.optimize();
+
+            state = next;
+            buildMillis = System.currentTimeMillis() - start;
+            LOGGER.info("用户检索索引构建完成,用户数{},占用内存{}字节,耗时{}毫秒", next.count(), next.sizeInBytes(), buildMillis);
+        } catch (Exception ex) {
+            LOGGER.error("用户检索索引构建失败: {}", ex.getMessage());
+        } finally {
+            building.set(false);
+        }
+
+        // 重放构建期间发生的变更
+        var ids = new ArrayList<>(pending);
+        pending.removeAll(ids);
+        submit(ids);
+    }
+
+    /**
+     * 停止索引变更处理线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 在当前事务提交后广播用户变更,各节点据此更新索引
+     *
+     * @param ids 用户ID集合
+     */
+    public void changed(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        var body = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        TransactionHelper.afterCommit(() -> redis.convertAndSend(CHANNEL, body));
+    }
+
+    /**
+     * 在当前事务提交后广播用户变更,各节点据此更新索引
+     *
+     * @param id 用户ID
+     */
+    public void changed(Long id) {
+        if (id != null) {
+            changed(List.of(id));
+        }
+    }
+
+    /**
+     * 以关键词检索候选用户并写入查询条件,索引不可用时不做处理(使用SQL检索)
+     *
+     * @param search   查询实体类
+     * @param tenantId 租户ID,为空时不限定租户
+     */
+    public void resolve(UserSearch search, Long tenantId) {
+        resolve(search, tenantId, false);
+    }
+
+    /**
+     * 以关键词检索不属于指定租户的候选用户并写入查询条件,索引不可用时不做处理(使用SQL检索)
+     *
+     * @param search   查询实体类
+     * @param tenantId 需排除的租户ID
+     */
+    public void resolveOutside(UserSearch search, Long tenantId) {
+        resolve(search, tenantId, true);
+    }
+
+    /**
+     * 以关键词检索候选用户并写入查询条件
+     *
+     * @param search   查询实体类
+     * @param tenantId 租户ID,为空时不限定租户
+     * @param outside  是否排除(而非限定)该租户的用户
+     */
+    private void resolve(UserSearch search, Long tenantId, boolean outside) {
+        var current = state;
+        var keyword = search.getKeyword();
+        if (current == null || keyword == null || keyword.strip().length() < GRAM) {
+            return;
+        }
+
+        var sample = Timer.start();
+        try {
+            var text = keyword.strip().toLowerCase(Locale.ROOT);
+            var candidates = current.search(tenantId, outside, grams(text), text, maxCandidates);
+            if (candidates != null) {
+                // 没有候选用户时以不存在的ID作为条件
+                search.setCandidates(candidates.isEmpty() ? List.of(0L) : candidates);
+            }
+        } finally {
+            sample.stop(timer);
+        }
+    }
+
+    /**
+     * 提交索引变更,由变更处理线程按顺序处理
+     *
+     * @param ids 用户ID集合
+     */
+    private void submit(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                reindex(ids);
+            } catch (Exception ex) {
+                LOGGER.error("用户检索索引更新失败: {}", ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 从数据库读取指定用户的检索字段及租户关系并更新索引
+     *
+     * @param ids 用户ID集合
+     */
+    private void reindex(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        if (building.get()) {
+            pending.addAll(ids);
+        }
+
+        var current = state;
+        if (current == null) {
+            return;
+        }
+
+        for (var i = 0; i < ids.size(); i += BATCH) {
+            var list = ids.subList(i, Math.min(i + BATCH, ids.size()));
+            var users = mapper.getSearchFields(list);
+            var relations = mapper.getTenantUsers(list);
+
+            current.lock.writeLock().lock();
+            try {
+                list.forEach(current::remove);
+                users.forEach(current::add);
+                relations.forEach(r -> current.addTenant(r.getTenantId(), r.getUserId()));
+            } finally {
+                current.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 获取文本的二元组集合
+     *
+     * @param text 文本(小写)
+     * @return 二元组集合
+     */
+    private static Set<String> grams(String text) {
+        var grams = new HashSet<String>();
+        for (var i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+
+        return grams;
+    }
+
+    /**
+     * 索引数据, 用户ID映射为连续序号后以RoaringBitmap存储
+     */
+    private static final class State {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, RoaringBitmap> grams = new HashMap<>();
+        private final Map<Long, RoaringBitmap> tenants = new HashMap<>();
+        private final Map<Long, Integer> extra = new HashMap<>();
+        private final RoaringBitmap live = new RoaringBitmap();
+        private long[] ids = new long[1024];
+        private int size;
+        private int sorted;
+
+        /**
+         * 加入用户
+         *
+         * @param user 用户数据
+         */
+        private void add(User user) {
+            var ordinal = ordinal(user.getId(), true);
+            live.add(ordinal);
+            for (var value : new String[]{user.getCode(), user.getName(), user.getAccount(), user.getMobile(), user.getEmail()}) {
+                if (value == null) {
+                    continue;
+                }
+
+                for (var gram : UserIndex.grams(value.toLowerCase(Locale.ROOT))) {
+                    grams.computeIfAbsent(gram, k -> new RoaringBitmap()).add(ordinal);
+                }
+            }
+        }
+
+        /**
+         * 移除用户及其租户关系,已写入的检索词由查询时的有效用户过滤
+         *
+         * @param id 用户ID
+         */
+        private void remove(Long id) {
+            var ordinal = ordinal(id, false);
+            if (ordinal < 0) {
+                return;
+            }
+
+            live.remove(ordinal);
+            tenants.values().forEach(t -> t.remove(ordinal));
+        }
+
+        /**
+         * 加入租户-用户关系
+         *
+         * @param tenantId 租户ID
+         * @param userId   用户ID
+         */
+        private void addTenant(Long tenantId, Long userId) {
+            var ordinal = ordinal(userId, false);
+            if (ordinal >= 0) {
+                tenants.computeIfAbsent(tenantId, k -> new RoaringBitmap()).add(ordinal);
+            }
+        }
+
+        /**
+         * 检索候选用户
+         *
+         * @param tenantId 租户ID
+         * @param outside  是否排除(而非限定)该租户的用户
+         * @param keys     关键词二元组集合
+         * @param text     关键词
+         * @param max      候选用户数上限
+         * @return 候选用户ID集合,超出上限时返回null
+         */
+        private List<Long> search(Long tenantId, boolean outside, Set<String> keys, String text, int max) {
+            lock.readLock().lock();
+            try {
+                var maps = new ArrayList<RoaringBitmap>();
+                for (var key : keys) {
+                    var map = grams.get(key);
+                    if (map == null) {
+                        maps.clear();
+                        break;
+                    }
+
+                    maps.add(map);
+                }
+
+                var result = new RoaringBitmap();
+                if (!maps.isEmpty()) {
+                    maps.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+                    result = maps.get(0).clone();
+                    for (var i = 1; i < maps.size() && !result.isEmpty(); i++) {
+                        result.and(maps.get(i));
+                    }
+
+                    result.and(live);
+                    var tenant = tenantId == null ? null : tenants.get(tenantId);
+                    if (outside && tenant != null) {
+                        result.andNot(tenant);
+                    } else if (!outside && tenantId != null) {
+                        result.and(tenant == null ? new RoaringBitmap() : tenant);
+                    }
+                }
+
+                // 关键词可能是用户ID
+                var ordinal = text.chars().allMatch(Character::isDigit) ? ordinal(parse(text), false) : -1;
+                if (ordinal >= 0 && live.contains(ordinal)) {
+                    result.add(ordinal);
+                }
+
+                if (result.getCardinality() > max) {
+                    return null;
+                }
+
+                var list = new ArrayList<Long>(result.getCardinality());
+                result.forEach((int i) -> list.add(ids[i]));
+                return list;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * 解析数字关键词
+         *
+         * @param text 关键词
+         * @return 数值,超出范围时返回-1
+         */
+        private static long parse(String text) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException ex) {
+                return -1;
+            }
+        }
+
+        /**
+         * 获取用户ID对应的序号,全量构建时用户ID递增,可二分查找;构建后新增的用户记录在补充映射中
+         *
+         * @param id     用户ID
+         * @param create 不存在时是否分配序号
+         * @return 序号,不存在且不分配时返回-1
+         */
+        private int ordinal(long id, boolean create) {
+            var index = Arrays.binarySearch(ids, 0, sorted, id);
+            if (index >= 0) {
+                return index;
+            }
+
+            var ordinal = extra.get(id);
+            if (ordinal != null) {
+                return ordinal;
+            }
+
+            if (!create) {
+                return -1;
+            }
+
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+
+            if (size == sorted && (size == 0 || id > ids[size - 1])) {
+                sorted++;
+            } else {
+                extra.put(id, size);
+            }
+
+            ids[size] = id;
+            return size++;
+        }
+
+        /**
+         * 压缩位图
+         */
+        private void optimize() {
+            grams.values().forEach(RoaringBitmap::runOptimize);
+            tenants.values().forEach(RoaringBitmap::runOptimize);
+        }
+
+        /**
+         * 有效用户数
+         *
+         * @return 用户数
+         */
+        private int count() {
+            return live.getCardinality();
+        }
+
+        /**
+         * 估算索引占用的内存
+         *
+         * @return 字节数
+         */
+        private long sizeInBytes() {
+            lock.readLock().lock();
+            try {
+                var bytes = (long) ids.length * Long.BYTES + live.getLongSizeInBytes();
+                for (var entry : grams.entrySet()) {
+                    bytes += entry.getKey().length() * 2L + 40 + entry.getValue().getLongSizeInBytes();
+                }
+
+                for (var map : tenants.values()) {
+                    bytes += map.getLongSizeInBytes();
+                }
+
+                return bytes;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.mapper.UserMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户摘要(所属租户及角色)维护, 用户列表查询直接关联摘要表而无需实时汇总角色数据
+ */
+@Component
+public class UserSummary {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserSummary.class);
+    private static final String LOCK_KEY = "Lock:UserSummary";
+    private final UserMapper mapper;
+    private final StringRedisTemplate redis;
+    private final int batchSize;
+
+    /**
+     * 手动重建在后台线程中执行,不占用请求线程
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        var thread = new Thread(r, "user-summary");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 构造方法
+     *
+     * @param mapper    UserMapper
+     * @param redis     StringRedisTemplate
+     * @param batchSize 重建时每批处理的用户数
+     */
+    public UserSummary(UserMapper mapper, StringRedisTemplate redis, @Value("${insight.user.summary.batch-size:1000}") int batchSize) {
+        this.mapper = mapper;
+        this.redis = redis;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 刷新指定用户的摘要,在调用方事务中执行
+     *
+     * @param ids 用户ID集合
+     */
+    public void refresh(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        mapper.refreshSummaries(List.copyOf(ids));
+    }
+
+    /**
+     * 刷新指定用户的摘要,在调用方事务中执行
+     *
+     * @param id 用户ID
+     */
+    public void refresh(Long id) {
+        if (id != null) {
+            mapper.refreshSummaries(List.of(id));
+        }
+    }
+
+    /**
+     * 定时重建全部用户摘要,用于初始化存量数据及修正租户/角色改名造成的差异(多个节点中仅一个执行)
+     */
+    @Scheduled(cron = "${insight.user.summary.cron:0 30 3 * * ?}")
+    public void rebuild() {
+        var lock = RedisLock.tryLock(redis, LOCK_KEY, Duration.ofHours(1));
+        if (lock == null) {
+            return;
+        }
+
+        try (lock) {
+            rebuildAll();
+        }
+    }
+
+    /**
+     * 获取重建锁后在后台线程中重建全部用户摘要
+     *
+     * @return 是否已开始重建,其他节点正在重建时返回false
+     */
+    public boolean rebuildAsync() {
+        var lock = RedisLock.tryLock(redis, LOCK_KEY, Duration.ofHours(1));
+        if (lock == null) {
+            return false;
+        }
+
+        executor.execute(RequestContext.wrap(() -> {
+            try (lock) {
+                rebuildAll();
+            } catch (Exception ex) {
+                LOGGER.error("用户摘要重建失败: {}", ex.getMessage());
+            }
+        }));
+
+        return true;
+    }
+
+    /**
+     * 停止后台线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 分批重建全部用户摘要
+     *
+     * @return 处理的用户数
+     */
+    private int rebuildAll() {
+        var count = 0;
+        var afterId = 0L;
+        var ids = mapper.getUserIds(afterId, batchSize);
+        while (!ids.isEmpty()) {
+            mapper.refreshSummaries(ids);
+            count += ids.size();
+            afterId = ids.get(ids.size() - 1);
+            ids = mapper.getUserIds(afterId, batchSize);
+        }
+
+        mapper.removeOrphanSummaries();
+        LOGGER.info("用户摘要重建完成,共处理{}个用户", count);
+        return count;
+    }
+}
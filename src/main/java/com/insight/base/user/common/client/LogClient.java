@@ -1,10 +1,10 @@
 package com.insight.base.user.common.client;
 
+import com.insight.base.user.common.LogPublisher;
 import com.insight.base.user.common.dto.OperateType;
 import com.insight.utils.common.ApplicationContextHolder;
 import com.insight.utils.pojo.auth.LoginInfo;
 import com.insight.utils.pojo.message.Log;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 
 /**
  * @author 宣炳刚
@@ -12,10 +12,10 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
  * @remark RabbitMQ客户端
  */
 public class LogClient {
-    private static final RabbitTemplate TEMPLATE = ApplicationContextHolder.getContext().getBean(RabbitTemplate.class);
+    private static final LogPublisher PUBLISHER = ApplicationContextHolder.getContext().getBean(LogPublisher.class);
 
     /**
-     * 记录操作日志
+     * 记录操作日志,由LogPublisher异步发送
      *
      * @param info     用户关键信息
      * @param business 业务类型
@@ -34,6 +34,6 @@ public class LogClient {
         log.setCreator(info.getName());
         log.setCreatorId(info.getId());
 
-        TEMPLATE.convertAndSend("amq.topic", "insight.log", log);
+        PUBLISHER.publish(log);
     }
 }
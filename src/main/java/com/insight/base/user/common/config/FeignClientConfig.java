@@ -1,10 +1,9 @@
 package com.insight.base.user.common.config;
 
+import com.insight.base.user.common.RequestContext;
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
 /**
  * @author 宣炳刚
@@ -13,30 +12,20 @@ import org.springframework.web.context.request.ServletRequestAttributes;
  */
 @Configuration
 public class FeignClientConfig implements RequestInterceptor {
-    private static final String REGULAR = "fingerprint|requestid|logininfo";
 
     /**
-     * 应用配置
+     * 应用配置,从请求上下文透传fingerprint、requestId和loginInfo请求头
      *
      * @param template RequestTemplate
      */
     @Override
     public void apply(RequestTemplate template) {
-        var requestAttributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-        if (requestAttributes == null) {
-            return;
-        }
-
         template.header("Accept", "application/json");
         template.header("Content-Type", "application/json");
-        var request = requestAttributes.getRequest();
-        var headers = request.getHeaderNames();
-        while (headers.hasMoreElements()) {
-            var name = headers.nextElement();
-            if (name.toLowerCase().matches(REGULAR)) {
-                var values = request.getHeader(name);
-                template.header(name, values);
-            }
+
+        var context = RequestContext.current();
+        if (context != null) {
+            context.forEach(template::header);
         }
     }
 }
@@ -1,14 +1,20 @@
 package com.insight.base.user.common.config;
 
-import com.insight.utils.Json;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.insight.base.user.common.RequestContext;
 import com.insight.utils.ReplyHelper;
 import com.insight.utils.pojo.base.BusinessException;
 import com.insight.utils.pojo.base.Reply;
 import feign.FeignException;
-import jakarta.servlet.http.HttpServletRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.UnexpectedTypeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.logging.LogLevel;
 import org.springframework.core.MethodParameter;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -29,15 +35,16 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
 import java.sql.SQLIntegrityConstraintViolationException;
 import java.sql.SQLSyntaxErrorException;
+import java.time.Duration;
 import java.time.format.DateTimeParseException;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author 宣炳刚
@@ -49,6 +56,28 @@ import java.util.Objects;
 @ControllerAdvice
 public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     private static final Logger LOGGER = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+    private static final int MAX_FRAMES = 32;
+    private final Map<Class<?>, Counter> counters = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+    private final Cache<String, AtomicLong> reported;
+    private final Counter suppressed;
+
+    /**
+     * 构造方法
+     *
+     * @param registry 指标注册器
+     * @param window   相同堆栈只打印一次的时间窗口(秒)
+     */
+    public GlobalExceptionHandler(MeterRegistry registry, @Value("${insight.user.exception.window:60}") long window) {
+        this.registry = registry;
+        this.suppressed = registry.counter("exception.stack.suppressed");
+        this.reported = Caffeine.newBuilder().maximumSize(1000).expireAfterWrite(Duration.ofSeconds(window)).scheduler(Scheduler.systemScheduler())
+                .removalListener((String key, AtomicLong count, RemovalCause cause) -> {
+                    if (count != null && count.get() > 0) {
+                        LOGGER.warn("异常指纹: {}. {}秒内重复{}次, 已省略堆栈", key, window, count.get());
+                    }
+                }).build();
+    }
 
     /**
      * 业务异常
@@ -59,7 +88,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(BusinessException.class)
     public Reply handleBusinessException(BusinessException ex) {
         String msg = ex.getMessage();
-        logger(LogLevel.INFO, "业务发生异常, " + msg);
+        logger(LogLevel.INFO, "业务发生异常, " + msg, ex);
 
         return ReplyHelper.fail(ex.getCode(), msg);
     }
@@ -73,7 +102,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(MissingServletRequestParameterException.class)
     public Reply handleMissingServletRequestParameterException(MissingServletRequestParameterException ex) {
         String msg = "缺少请求参数, " + ex.getParameterName();
-        logger(LogLevel.WARN, msg);
+        logger(LogLevel.WARN, msg, ex);
 
         return ReplyHelper.invalidParam(msg);
     }
@@ -87,7 +116,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(IllegalArgumentException.class)
     public Reply handleIllegalArgumentException(IllegalArgumentException ex) {
         String msg = "不合法的参数, " + ex.getMessage();
-        logger(LogLevel.WARN, msg);
+        logger(LogLevel.WARN, msg, ex);
 
         return ReplyHelper.invalidParam(msg);
     }
@@ -101,7 +130,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(ServletRequestBindingException.class)
     public Reply handleServletRequestBindingException(ServletRequestBindingException ex) {
         String msg = "参数绑定错误, " + ex.getMessage();
-        logger(LogLevel.WARN, msg);
+        logger(LogLevel.WARN, msg, ex);
 
         return ReplyHelper.invalidParam(msg);
     }
@@ -115,7 +144,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public Reply handleHttpMessageNotReadableException(HttpMessageNotReadableException ex) {
         String msg = "参数解析失败, " + ex.getMessage();
-        logger(LogLevel.WARN, msg);
+        logger(LogLevel.WARN, msg, ex);
 
         return ReplyHelper.invalidParam(msg);
     }
@@ -131,14 +160,14 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
         FieldError error = ex.getBindingResult().getFieldError();
         if (error == null) {
             String msg = "参数解析失败, " + ex.getMessage();
-            logger(LogLevel.WARN, msg);
+            logger(LogLevel.WARN, msg, ex);
 
             return ReplyHelper.invalidParam("参数解析失败");
         }
 
         String parameter = error.getField();
         String msg = "参数绑定失败, " + parameter;
-        logger(LogLevel.WARN, msg);
+        logger(LogLevel.WARN, msg, ex);
 
         return ReplyHelper.invalidParam(msg);
     }
@@ -154,14 +183,14 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
         FieldError error = ex.getBindingResult().getFieldError();
         if (error == null) {
             String msg = "参数绑定失败, " + ex.getMessage();
-            logger(LogLevel.WARN, msg);
+            logger(LogLevel.WARN, msg, ex);
 
             return ReplyHelper.invalidParam("参数绑定失败");
         }
 
         String parameter = error.getField();
         String msg = "参数绑定失败, " + parameter;
-        logger(LogLevel.WARN, msg);
+        logger(LogLevel.WARN, msg, ex);
 
         return ReplyHelper.invalidParam(msg);
     }
@@ -175,7 +204,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
     public Reply handleHttpMediaTypeNotSupportedException(HttpMediaTypeNotSupportedException ex) {
         String msg = "不支持当前媒体类型, " + ex.getMessage();
-        logger(LogLevel.WARN, msg);
+        logger(LogLevel.WARN, msg, ex);
 
         return ReplyHelper.invalidParam(msg);
     }
@@ -189,7 +218,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(UnexpectedTypeException.class)
     public Reply handleUnexpectedTypeException(UnexpectedTypeException ex) {
         String msg = "参数类型不匹配, " + ex.getMessage();
-        logger(LogLevel.WARN, msg);
+        logger(LogLevel.WARN, msg, ex);
 
         return ReplyHelper.invalidParam(msg);
     }
@@ -203,7 +232,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(FeignException.class)
     public Reply handleFeignException(FeignException ex) {
         String msg = "服务调用异常, " + ex.getMessage();
-        String requestId = logger(LogLevel.ERROR, msg);
+        String requestId = logger(LogLevel.ERROR, msg, ex);
 
         return ReplyHelper.error(requestId);
     }
@@ -217,7 +246,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(DataIntegrityViolationException.class)
     public Reply handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
         String msg = "数据库操作异常, " + ex.getCause().getMessage();
-        String requestId = logger(LogLevel.ERROR, msg);
+        String requestId = logger(LogLevel.ERROR, msg, ex);
 
         return ReplyHelper.error(requestId);
     }
@@ -231,7 +260,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(BadSqlGrammarException.class)
     public Reply handleBadSqlGrammarException(BadSqlGrammarException ex) {
         String msg = "数据库操作异常, " + ex.getCause().getMessage();
-        String requestId = logger(LogLevel.ERROR, msg);
+        String requestId = logger(LogLevel.ERROR, msg, ex);
 
         return ReplyHelper.error(requestId);
     }
@@ -245,7 +274,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(SQLIntegrityConstraintViolationException.class)
     public Reply handleSqlIntegrityConstraintViolationException(SQLIntegrityConstraintViolationException ex) {
         String msg = "数据库操作异常, " + ex.getCause().getMessage();
-        String requestId = logger(LogLevel.ERROR, msg);
+        String requestId = logger(LogLevel.ERROR, msg, ex);
 
         return ReplyHelper.error(requestId);
     }
@@ -259,7 +288,7 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(SQLSyntaxErrorException.class)
     public Reply handleSqlSyntaxErrorException(SQLSyntaxErrorException ex) {
         String msg = "数据库操作异常, " + ex.getCause().getMessage();
-        String requestId = logger(LogLevel.ERROR, msg);
+        String requestId = logger(LogLevel.ERROR, msg, ex);
 
         return ReplyHelper.error(requestId);
     }
@@ -273,8 +302,8 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(NullPointerException.class)
     public Reply handleNullPointerException(NullPointerException ex) {
         String msg = "空指针异常, " + ex.getMessage();
-        String requestId = logger(LogLevel.ERROR, msg);
-        printStack(requestId, ex);
+        String requestId = logger(LogLevel.ERROR, msg, ex);
+        report(requestId, ex);
 
         return ReplyHelper.error(requestId);
     }
@@ -288,8 +317,8 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(DateTimeParseException.class)
     public Reply handleUnexpectedTypeException(DateTimeParseException ex) {
         String msg = "时间/日期格式错误, " + ex.getMessage();
-        String requestId = logger(LogLevel.ERROR, msg);
-        printStack(requestId, ex);
+        String requestId = logger(LogLevel.ERROR, msg, ex);
+        report(requestId, ex);
 
         return ReplyHelper.error(requestId, msg);
     }
@@ -303,8 +332,8 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(AsyncRequestTimeoutException.class)
     public Reply handleAsyncRequestTimeoutException(AsyncRequestTimeoutException ex) {
         String msg = "异步请求超时异常, " + ex.getMessage();
-        String requestId = logger(LogLevel.ERROR, msg);
-        printStack(requestId, ex);
+        String requestId = logger(LogLevel.ERROR, msg, ex);
+        report(requestId, ex);
 
         return ReplyHelper.error(requestId);
     }
@@ -318,8 +347,8 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(RuntimeException.class)
     public Reply handleRuntimeException(RuntimeException ex) {
         String msg = "运行时异常, " + ex.getMessage();
-        String requestId = logger(LogLevel.ERROR, msg);
-        printStack(requestId, ex);
+        String requestId = logger(LogLevel.ERROR, msg, ex);
+        report(requestId, ex);
 
         return ReplyHelper.error(requestId);
     }
@@ -333,23 +362,23 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     @ExceptionHandler(Exception.class)
     public Reply handleException(Exception ex) {
         String msg = "服务器异常, " + ex.getMessage();
-        String requestId = logger(LogLevel.ERROR, msg);
-        printStack(requestId, ex);
+        String requestId = logger(LogLevel.ERROR, msg, ex);
+        report(requestId, ex);
 
         return ReplyHelper.error(requestId);
     }
 
     /**
-     * 打印日志
+     * 打印日志并按异常类型计数
      *
      * @param level   日志等级
      * @param message 错误信息
+     * @param ex      异常
      * @return 请求ID
      */
-    private String logger(LogLevel level, String message) {
-        ServletRequestAttributes requestAttributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-        HttpServletRequest request = Objects.requireNonNull(requestAttributes).getRequest();
-        String requestId = request.getHeader("requestId");
+    private String logger(LogLevel level, String message, Exception ex) {
+        counters.computeIfAbsent(ex.getClass(), k -> registry.counter("exception.handled", "exception", k.getSimpleName())).increment();
+        String requestId = RequestContext.currentRequestId();
         switch (level) {
             case ERROR -> LOGGER.error("requestId: {}. 错误信息: {}", requestId, message);
             case WARN -> LOGGER.warn("requestId: {}. 警告信息: {}", requestId, message);
@@ -360,14 +389,44 @@ public class GlobalExceptionHandler implements ResponseBodyAdvice<Object> {
     }
 
     /**
-     * 打印异常堆栈
+     * 打印异常堆栈,相同指纹的堆栈在时间窗口内只打印一次,其余只计数,窗口结束时汇总打印重复次数
      *
      * @param requestId 请求ID
      * @param ex        Exception
      */
-    private void printStack(String requestId, Exception ex) {
-        String stackTrace = Json.toJson(ex.getStackTrace());
-        LOGGER.error("requestId, {}. 异常堆栈, {}", requestId, stackTrace);
+    private void report(String requestId, Exception ex) {
+        var fingerprint = fingerprint(ex);
+        var count = reported.asMap().putIfAbsent(fingerprint, new AtomicLong());
+        if (count == null) {
+            LOGGER.error("requestId: {}. 异常指纹: {}. 异常堆栈", requestId, fingerprint, ex);
+        } else {
+            count.incrementAndGet();
+            suppressed.increment();
+            LOGGER.debug("requestId: {}. 异常指纹: {}. 堆栈已打印, 省略", requestId, fingerprint);
+        }
+    }
+
+    /**
+     * 计算异常指纹:异常类型及调用栈(含异常原因)的哈希值
+     *
+     * @param ex 异常
+     * @return 异常指纹
+     */
+    private static String fingerprint(Throwable ex) {
+        long hash = 17;
+        var depth = 0;
+        for (var current = ex; current != null && depth < 4; current = current.getCause(), depth++) {
+            hash = hash * 31 + current.getClass().getName().hashCode();
+            var frames = current.getStackTrace();
+            for (var i = 0; i < Math.min(frames.length, MAX_FRAMES); i++) {
+                var frame = frames[i];
+                hash = hash * 31 + frame.getClassName().hashCode();
+                hash = hash * 31 + frame.getMethodName().hashCode();
+                hash = hash * 31 + frame.getLineNumber();
+            }
+        }
+
+        return ex.getClass().getSimpleName() + "-" + Long.toHexString(hash);
     }
 
     /**
@@ -0,0 +1,62 @@
+package com.insight.base.user.common.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.insight.utils.Json;
+import com.insight.utils.pojo.auth.LoginInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.MissingRequestHeaderException;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.time.Duration;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户关键信息参数解析器, 解析请求头loginInfo并以请求头原值为键缓存解析结果
+ */
+@Component
+public class LoginInfoResolver implements HandlerMethodArgumentResolver {
+
+    /**
+     * 用户关键信息请求头
+     */
+    public static final String HEADER = "loginInfo";
+    private final Cache<String, LoginInfo> cache;
+
+    /**
+     * 构造方法
+     *
+     * @param registry 指标注册器
+     * @param size     最大缓存条目数
+     * @param ttl      缓存有效时长(秒)
+     */
+    public LoginInfoResolver(MeterRegistry registry, @Value("${insight.user.login-info.size:10000}") long size,
+                             @Value("${insight.user.login-info.ttl:600}") long ttl) {
+        this.cache = Caffeine.newBuilder().maximumSize(size).expireAfterAccess(Duration.ofSeconds(ttl)).recordStats().build();
+        CaffeineCacheMetrics.monitor(registry, cache, "loginInfo");
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return LoginInfo.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer container, NativeWebRequest request, WebDataBinderFactory factory)
+            throws MissingRequestHeaderException {
+        var header = request.getHeader(HEADER);
+        if (header == null || header.isEmpty()) {
+            throw new MissingRequestHeaderException(HEADER, parameter);
+        }
+
+        return cache.get(header, k -> Json.toBeanFromBase64(k, LoginInfo.class));
+    }
+}
@@ -27,6 +27,10 @@ public class QueueConfig {
      * exchange name
      */
     private final static String TOPIC_EXCHANGE = "amq.topic";
+    /**
+     * user event exchange
+     */
+    public final static String USER_EVENT_EXCHANGE = "insight.user.event";
     /**
      * process queue
      */
@@ -52,6 +56,16 @@ public class QueueConfig {
         return new TopicExchange(TOPIC_EXCHANGE);
     }
 
+    /**
+     * user event exchange
+     *
+     * @return TopicExchange
+     */
+    @Bean
+    public TopicExchange userEventExchange() {
+        return new TopicExchange(USER_EVENT_EXCHANGE);
+    }
+
     /**
      * delay queue
      *
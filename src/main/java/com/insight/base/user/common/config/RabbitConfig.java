@@ -1,10 +1,17 @@
 package com.insight.base.user.common.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insight.base.user.common.RequestContext;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateCustomizer;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -21,6 +28,50 @@ public class RabbitConfig implements InitializingBean {
         return new Jackson2JsonMessageConverter(objectMapper);
     }
 
+    /**
+     * 发送消息时将当前请求上下文写入消息头
+     *
+     * @return RabbitTemplateCustomizer
+     */
+    @Bean
+    public RabbitTemplateCustomizer contextTemplateCustomizer() {
+        return template -> template.addBeforePublishPostProcessors(RequestContext::stamp);
+    }
+
+    /**
+     * 批量消费的监听容器工厂,先应用spring.rabbitmq.listener.simple.*配置(含虚拟线程执行器),再设置批量消费参数。
+     * 默认每个节点只有一个消费者,保证同一节点上的批次按顺序处理,避免同一用户的新增和更新乱序
+     *
+     * @param configurer        Spring Boot监听容器工厂配置器
+     * @param connectionFactory 连接工厂
+     * @param batchSize         每批消息数
+     * @param receiveTimeout    凑批等待时长(毫秒)
+     * @param prefetch          预取消息数
+     * @param concurrency       每个节点的消费者数
+     * @param maxConcurrency    每个节点的最大消费者数
+     * @return SimpleRabbitListenerContainerFactory
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchContainerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                      ConnectionFactory connectionFactory,
+                                                                      @Value("${insight.user.listener.batch-size:100}") int batchSize,
+                                                                      @Value("${insight.user.listener.receive-timeout:1000}") long receiveTimeout,
+                                                                      @Value("${insight.user.listener.prefetch:250}") int prefetch,
+                                                                      @Value("${insight.user.listener.concurrency:1}") int concurrency,
+                                                                      @Value("${insight.user.listener.max-concurrency:1}") int maxConcurrency) {
+        var factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(concurrency, maxConcurrency));
+        return factory;
+    }
+
     @Override
     public void afterPropertiesSet() {
         final RabbitTemplate rabbitTemplate = new RabbitTemplate();
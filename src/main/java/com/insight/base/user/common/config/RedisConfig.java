@@ -0,0 +1,28 @@
+package com.insight.base.user.common.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark Redis消息订阅配置
+ */
+@Configuration
+public class RedisConfig {
+
+    /**
+     * Redis消息订阅容器,用于多节点间广播缓存失效消息
+     *
+     * @param factory Redis连接工厂
+     * @return RedisMessageListenerContainer
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory) {
+        var container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        return container;
+    }
+}
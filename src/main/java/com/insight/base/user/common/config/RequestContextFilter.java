@@ -0,0 +1,35 @@
+package com.insight.base.user.common.config;
+
+import com.insight.base.user.common.RequestContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 请求上下文过滤器, 请求进入时读取需透传的请求头, 请求结束后清除
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestContextFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        var context = new RequestContext(request.getHeader(RequestContext.FINGERPRINT), request.getHeader(RequestContext.REQUEST_ID),
+                request.getHeader(RequestContext.LOGIN_INFO));
+        var previous = RequestContext.attach(context);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestContext.attach(previous);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.insight.base.user.common.config;
+
+import com.insight.base.user.common.LimitedDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 虚拟线程执行模式配置, 运行于Java 21及以上且spring.threads.virtual.enabled=true时生效
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    /**
+     * Undertow以虚拟线程分派请求,控制器及其中的Feign、Redis和数据库调用均在虚拟线程中执行
+     *
+     * @return WebServerFactoryCustomizer
+     */
+    @Bean
+    public WebServerFactoryCustomizer<UndertowServletWebServerFactory> undertowVirtualThreads() {
+        return factory -> factory.addDeploymentInfoCustomizers(info -> info.setExecutor(new VirtualThreadTaskExecutor("undertow-")));
+    }
+
+    /**
+     * 限制请求线程同时持有的数据库连接数(insight.user.virtual.request-connections,默认为连接池大小减2,且不超过连接池大小减1),
+     * 避免大量虚拟线程占满连接池,其余连接留给消息监听、定时任务和事件发布
+     *
+     * @param environment 环境变量
+     * @return BeanPostProcessor
+     */
+    @Bean
+    public static BeanPostProcessor limitedDataSource(Environment environment) {
+        var timeout = environment.getProperty("insight.user.virtual.connection-timeout", Long.class, 10000L);
+        var connections = environment.getProperty("insight.user.virtual.request-connections", Integer.class);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    var poolSize = dataSource.getMaximumPoolSize();
+                    var permits = Math.max(1, Math.min(connections == null ? poolSize - 2 : connections, poolSize - 1));
+                    LOGGER.info("请求线程最多同时持有{}个数据库连接(连接池大小{})", permits, poolSize);
+                    return new LimitedDataSource(dataSource, permits, timeout);
+                }
+
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * 标记请求线程,使其获取数据库连接时受许可限制
+     *
+     * @return OncePerRequestFilter
+     */
+    @Bean
+    public OncePerRequestFilter requestConnectionLimit() {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+                var previous = LimitedDataSource.limit(true);
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    LimitedDataSource.limit(previous);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package com.insight.base.user.common.config;
+
+import com.insight.base.user.common.RequestContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark Web配置
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final LoginInfoResolver resolver;
+
+    /**
+     * 构造方法
+     *
+     * @param resolver 用户关键信息参数解析器
+     */
+    public WebConfig(LoginInfoResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * 将提交任务时的请求上下文复制到线程池任务
+     *
+     * @return TaskDecorator
+     */
+    @Bean
+    public TaskDecorator contextTaskDecorator() {
+        return RequestContext::wrap;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(resolver);
+    }
+}
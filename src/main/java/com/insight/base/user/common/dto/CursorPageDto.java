@@ -0,0 +1,52 @@
+package com.insight.base.user.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+import java.util.List;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 游标分页结果DTO
+ */
+public class CursorPageDto<T> extends BaseXo {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> list;
+
+    /**
+     * 下一页游标,没有下一页时为null
+     */
+    private String next;
+
+    /**
+     * 总记录数,未要求返回总数时为null
+     */
+    private Long total;
+
+    public List<T> getList() {
+        return list;
+    }
+
+    public void setList(List<T> list) {
+        this.list = list;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,37 @@
+package com.insight.base.user.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户组-成员关系DTO
+ */
+public class GroupMemberDto extends BaseXo {
+
+    /**
+     * 用户组ID
+     */
+    private Long groupId;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(Long groupId) {
+        this.groupId = groupId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,91 @@
+package com.insight.base.user.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+import com.insight.utils.pojo.user.UserDto;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户导入结果DTO
+ */
+public class ImportResultDto extends BaseXo {
+
+    /**
+     * 导入数据行号(从0开始)
+     */
+    private Integer index;
+
+    /**
+     * 用户ID
+     */
+    private Long id;
+
+    /**
+     * 登录账号
+     */
+    private String account;
+
+    /**
+     * 是否导入成功
+     */
+    private Boolean success;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+
+    public ImportResultDto() {
+    }
+
+    public ImportResultDto(Integer index, UserDto user, String message) {
+        this.index = index;
+        if (user != null) {
+            this.id = message == null ? user.getId() : null;
+            this.account = user.getAccount();
+        }
+
+        this.success = message == null;
+        this.message = message;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public void setIndex(Integer index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public void setAccount(String account) {
+        this.account = account;
+    }
+
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    public void setSuccess(Boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,76 @@
+package com.insight.base.user.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户组成员批量变更结果DTO
+ */
+public class MemberResultDto extends BaseXo {
+
+    /**
+     * 请求的用户数
+     */
+    private Integer requested;
+
+    /**
+     * 去重后的用户数
+     */
+    private Integer distinct;
+
+    /**
+     * 实际添加/移除的成员数
+     */
+    private Integer affected;
+
+    /**
+     * 已是成员(添加时)或不是成员(移除时)而跳过的用户数
+     */
+    private Integer skipped;
+
+    /**
+     * 分批执行的批次数
+     */
+    private Integer chunks;
+
+    public Integer getRequested() {
+        return requested;
+    }
+
+    public void setRequested(Integer requested) {
+        this.requested = requested;
+    }
+
+    public Integer getDistinct() {
+        return distinct;
+    }
+
+    public void setDistinct(Integer distinct) {
+        this.distinct = distinct;
+    }
+
+    public Integer getAffected() {
+        return affected;
+    }
+
+    public void setAffected(Integer affected) {
+        this.affected = affected;
+    }
+
+    public Integer getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(Integer skipped) {
+        this.skipped = skipped;
+    }
+
+    public Integer getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(Integer chunks) {
+        this.chunks = chunks;
+    }
+}
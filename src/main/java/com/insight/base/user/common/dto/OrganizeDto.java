@@ -0,0 +1,37 @@
+package com.insight.base.user.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 组织机构节点DTO
+ */
+public class OrganizeDto extends BaseXo {
+
+    /**
+     * 组织机构ID
+     */
+    private Long id;
+
+    /**
+     * 上级组织机构ID
+     */
+    private Long parentId;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+}
@@ -0,0 +1,245 @@
+package com.insight.base.user.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 功能授权行DTO, 每行为一个功能及其上级导航、模块组和应用
+ */
+public class PermitRowDto extends BaseXo {
+
+    /**
+     * 功能ID
+     */
+    private Long id;
+
+    /**
+     * 功能的上级导航ID(ibs_function.nav_id)
+     */
+    private Long parentId;
+
+    /**
+     * 导航ID
+     */
+    private Long navId;
+
+    /**
+     * 功能索引
+     */
+    private Integer index;
+
+    /**
+     * 功能名称
+     */
+    private String name;
+
+    /**
+     * 授权(0.禁止; 1.允许), 多个角色授权时取最小值
+     */
+    private Integer permit;
+
+    /**
+     * 模块组ID
+     */
+    private Long groupId;
+
+    /**
+     * 导航索引
+     */
+    private Integer navIndex;
+
+    /**
+     * 导航级别
+     */
+    private Integer navType;
+
+    /**
+     * 导航名称
+     */
+    private String navName;
+
+    /**
+     * 导航的上级模块组ID(ibs_navigator.parent_id)
+     */
+    private Long navParentId;
+
+    /**
+     * 应用ID
+     */
+    private Long appId;
+
+    /**
+     * 模块组索引
+     */
+    private Integer groupIndex;
+
+    /**
+     * 模块组级别
+     */
+    private Integer groupType;
+
+    /**
+     * 模块组名称
+     */
+    private String groupName;
+
+    /**
+     * 模块组的上级应用ID(ibs_navigator.app_id)
+     */
+    private Long groupParentId;
+
+    /**
+     * 应用索引
+     */
+    private Integer appIndex;
+
+    /**
+     * 应用名称
+     */
+    private String appName;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public Long getNavId() {
+        return navId;
+    }
+
+    public void setNavId(Long navId) {
+        this.navId = navId;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public void setIndex(Integer index) {
+        this.index = index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getPermit() {
+        return permit;
+    }
+
+    public void setPermit(Integer permit) {
+        this.permit = permit;
+    }
+
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(Long groupId) {
+        this.groupId = groupId;
+    }
+
+    public Integer getNavIndex() {
+        return navIndex;
+    }
+
+    public void setNavIndex(Integer navIndex) {
+        this.navIndex = navIndex;
+    }
+
+    public Integer getNavType() {
+        return navType;
+    }
+
+    public void setNavType(Integer navType) {
+        this.navType = navType;
+    }
+
+    public String getNavName() {
+        return navName;
+    }
+
+    public void setNavName(String navName) {
+        this.navName = navName;
+    }
+
+    public Long getNavParentId() {
+        return navParentId;
+    }
+
+    public void setNavParentId(Long navParentId) {
+        this.navParentId = navParentId;
+    }
+
+    public Long getAppId() {
+        return appId;
+    }
+
+    public void setAppId(Long appId) {
+        this.appId = appId;
+    }
+
+    public Integer getGroupIndex() {
+        return groupIndex;
+    }
+
+    public void setGroupIndex(Integer groupIndex) {
+        this.groupIndex = groupIndex;
+    }
+
+    public Integer getGroupType() {
+        return groupType;
+    }
+
+    public void setGroupType(Integer groupType) {
+        this.groupType = groupType;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public Long getGroupParentId() {
+        return groupParentId;
+    }
+
+    public void setGroupParentId(Long groupParentId) {
+        this.groupParentId = groupParentId;
+    }
+
+    public Integer getAppIndex() {
+        return appIndex;
+    }
+
+    public void setAppIndex(Integer appIndex) {
+        this.appIndex = appIndex;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public void setAppName(String appName) {
+        this.appName = appName;
+    }
+}
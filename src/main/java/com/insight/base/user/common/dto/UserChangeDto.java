@@ -0,0 +1,141 @@
+package com.insight.base.user.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户变更DTO
+ */
+public class UserChangeDto extends BaseXo {
+
+    /**
+     * 变更序号
+     */
+    private Long seq;
+
+    /**
+     * 用户ID
+     */
+    private Long id;
+
+    /**
+     * 用户是否已删除
+     */
+    private Boolean deleted;
+
+    /**
+     * 用户编码
+     */
+    private String code;
+
+    /**
+     * 姓名
+     */
+    private String name;
+
+    /**
+     * 登录账号
+     */
+    private String account;
+
+    /**
+     * 手机号
+     */
+    private String mobile;
+
+    /**
+     * Email
+     */
+    private String email;
+
+    /**
+     * 是否失效
+     */
+    private Boolean invalid;
+
+    /**
+     * 关联租户ID,逗号分隔
+     */
+    private String tenantIds;
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Boolean getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(Boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public void setAccount(String account) {
+        this.account = account;
+    }
+
+    public String getMobile() {
+        return mobile;
+    }
+
+    public void setMobile(String mobile) {
+        this.mobile = mobile;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Boolean getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(Boolean invalid) {
+        this.invalid = invalid;
+    }
+
+    public String getTenantIds() {
+        return tenantIds;
+    }
+
+    public void setTenantIds(String tenantIds) {
+        this.tenantIds = tenantIds;
+    }
+}
@@ -0,0 +1,101 @@
+package com.insight.base.user.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户变更事件DTO
+ */
+public class UserEventDto extends BaseXo {
+
+    /**
+     * 事件ID(版本号)
+     */
+    private Long id;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 租户ID
+     */
+    private Long tenantId;
+
+    /**
+     * 事件类型
+     */
+    private String type;
+
+    /**
+     * 变更字段,逗号分隔
+     */
+    private String fields;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdTime;
+
+    public UserEventDto() {
+    }
+
+    public UserEventDto(Long userId, Long tenantId, String type, String fields) {
+        this.userId = userId;
+        this.tenantId = tenantId;
+        this.type = type;
+        this.fields = fields;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(Long tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getFields() {
+        return fields;
+    }
+
+    public void setFields(String fields) {
+        this.fields = fields;
+    }
+
+    public LocalDateTime getCreatedTime() {
+        return createdTime;
+    }
+
+    public void setCreatedTime(LocalDateTime createdTime) {
+        this.createdTime = createdTime;
+    }
+}
@@ -0,0 +1,59 @@
+package com.insight.base.user.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户登录标识DTO
+ */
+public class UserKeyDto extends BaseXo {
+
+    /**
+     * 登录标识
+     */
+    private String key;
+
+    /**
+     * 标识类型: 0.账号; 1.手机号; 2.Email
+     */
+    private Integer kind;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    public UserKeyDto() {
+    }
+
+    public UserKeyDto(String key, Integer kind, Long userId) {
+        this.key = key;
+        this.kind = kind;
+        this.userId = userId;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public Integer getKind() {
+        return kind;
+    }
+
+    public void setKind(Integer kind) {
+        this.kind = kind;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+}
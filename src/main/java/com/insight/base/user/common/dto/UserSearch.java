@@ -0,0 +1,104 @@
+package com.insight.base.user.common.dto;
+
+import com.insight.utils.pojo.base.Search;
+
+import java.util.List;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户查询实体类, 在Search的基础上支持游标分页
+ */
+public class UserSearch extends Search {
+
+    /**
+     * 分页游标,不为null时使用游标分页(首页传空字符串)
+     */
+    private String cursor;
+
+    /**
+     * 游标分页时是否返回总数
+     */
+    private Boolean total;
+
+    /**
+     * 是否允许返回近似总数(数据变更前缓存的总数)
+     */
+    private Boolean approx;
+
+    /**
+     * 通过组织机构闭包表限定范围的组织机构ID(内部使用)
+     */
+    private Long orgId;
+
+    /**
+     * 游标对应的起始ID(内部使用)
+     */
+    private Long afterId;
+
+    /**
+     * 游标分页时查询的记录数(内部使用)
+     */
+    private Integer limit;
+
+    /**
+     * 关键词检索索引给出的候选用户ID(内部使用)
+     */
+    private List<Long> candidates;
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public Boolean getTotal() {
+        return total;
+    }
+
+    public void setTotal(Boolean total) {
+        this.total = total;
+    }
+
+    public Boolean getApprox() {
+        return approx;
+    }
+
+    public void setApprox(Boolean approx) {
+        this.approx = approx;
+    }
+
+    public Long getOrgId() {
+        return orgId;
+    }
+
+    public void setOrgId(Long orgId) {
+        this.orgId = orgId;
+    }
+
+    public Long getAfterId() {
+        return afterId;
+    }
+
+    public void setAfterId(Long afterId) {
+        this.afterId = afterId;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public List<Long> getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(List<Long> candidates) {
+        this.candidates = candidates;
+    }
+}
@@ -2,9 +2,13 @@ package com.insight.base.user.common.mapper;
 
 import com.insight.base.user.common.dto.GroupDto;
 import com.insight.base.user.common.dto.GroupListDto;
+import com.insight.base.user.common.dto.GroupMemberDto;
+import com.insight.base.user.common.dto.UserSearch;
 import com.insight.base.user.common.dto.UserVo;
 import com.insight.utils.pojo.base.Search;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -81,49 +85,78 @@ public interface GroupMapper {
               join ibu_user u on u.id = m.user_id
               <if test = 'keyword != null'>and (u.code = #{keyword} or u.account = #{keyword} or u.name like concat('%',#{keyword},'%'))</if>
             where m.group_id = #{id}
+              <if test = 'candidates != null'>and m.user_id in
+                (<foreach collection = "candidates" item = "item" index = "index" separator = ",">#{item}</foreach>)</if>
+              <if test = 'afterId != null'>and m.user_id > #{afterId}</if>
+            <if test = 'limit != null'>order by m.user_id limit #{limit}</if>
             </script>
             """)
-    List<UserVo> getMembers(Search search);
+    List<UserVo> getMembers(UserSearch search);
 
     /**
-     * 查询用户组可用用户列表
+     * 查询用户组可用用户列表(租户下未加入用户组的有效用户)
      *
-     * @param id 用户组ID
+     * @param search 查询实体类
      * @return 用户列表
      */
     @Select("""
+            <script>
             select u.id, u.code, u.name, u.account, u.mobile, u.remark, u.builtin, u.invalid
-            from ibu_user u
-              join ibt_tenant_user t on t.user_id = u.id
+            from ibu_group g
+              join ibt_tenant_user t on t.tenant_id = g.tenant_id
                 and t.invalid = 0
-              join ibu_group g on g.tenant_id = t.tenant_id
-                and g.id = #{id}
-              left join ibu_group_member m on m.group_id = g.id
-                and m.user_id = u.id
-            where u.invalid = 0
-              and isnull(m.id);
+              join ibu_user u on u.id = t.user_id
+                and u.invalid = 0
+            where g.id = #{id}
+              and not exists (select 1 from ibu_group_member m where m.group_id = g.id and m.user_id = t.user_id)
+              <if test = 'keyword != null'>and (u.code = #{keyword} or u.account = #{keyword} or u.mobile = #{keyword}
+              or u.name like concat('%',#{keyword},'%'))</if>
+              <if test = 'candidates != null'>and t.user_id in
+                (<foreach collection = "candidates" item = "item" index = "index" separator = ",">#{item}</foreach>)</if>
+              <if test = 'afterId != null'>and t.user_id > #{afterId}</if>
+            <if test = 'limit != null'>order by t.user_id limit #{limit}</if>
+            </script>
+            """)
+    List<UserVo> getOthers(UserSearch search);
+
+    /**
+     * 获取指定用户中已是用户组成员的用户ID
+     *
+     * @param id      用户组ID
+     * @param userIds 用户ID集合
+     * @return 用户ID集合
+     */
+    @Select("""
+            <script>
+            select user_id
+            from ibu_group_member
+            where group_id = #{id}
+              and user_id in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>);
+            </script>
             """)
-    List<UserVo> getOthers(Long id);
+    List<Long> getMemberIds(@Param("id") Long id, @Param("list") List<Long> userIds);
 
     /**
-     * 添加用户组成员
+     * 添加用户组成员,忽略已存在的成员
      *
      * @param id      用户组ID
      * @param userIds 用户ID集合
+     * @return 添加的成员数
      */
     @Insert("""
             <script>
-            insert ibu_group_member (group_id, user_id) values
+            insert ignore ibu_group_member (group_id, user_id) values
             <foreach collection = "list" item = "item" index = "index" separator = ",">(#{id}, #{item})</foreach>;
             </script>
             """)
-    void addMembers(@Param("id") Long id, @Param("list") List<Long> userIds);
+    int addMembers(@Param("id") Long id, @Param("list") List<Long> userIds);
 
     /**
      * 移除用户组成员
      *
      * @param id      用户组ID
      * @param userIds 用户ID集合
+     * @return 移除的成员数
      */
     @Delete("""
             <script>
@@ -133,15 +166,59 @@ public interface GroupMapper {
               and user_id in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>);
             </script>
             """)
-    void removeMembers(@Param("id") Long id, @Param("list") List<Long> userIds);
+    int removeMembers(@Param("id") Long id, @Param("list") List<Long> userIds);
 
     /**
-     * 获取指定租户下指定编码的用户组数量
+     * 获取指定租户下已被使用的用户组编码
      *
      * @param tenantId 租户ID
-     * @param code     用户组编码
-     * @return 用户组数量
+     * @param codes    用户组编码集合
+     * @return 已被使用的用户组编码集合
+     */
+    @Select("""
+            <script>
+            select code from ibu_group
+            where tenant_id = #{tenantId}
+              and code in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>);
+            </script>
+            """)
+    List<String> getUsedCodes(@Param("tenantId") Long tenantId, @Param("list") List<String> codes);
+
+    /**
+     * 获取指定租户下指定长度的最大用户组编码
+     *
+     * @param tenantId 租户ID
+     * @param length   编码长度
+     * @return 最大用户组编码
+     */
+    @Select("select max(code) from ibu_group where tenant_id = #{tenantId} and char_length(code) = #{length};")
+    String getMaxCode(@Param("tenantId") Long tenantId, @Param("length") int length);
+
+    /**
+     * 以流式读取方式遍历全部用户组-成员关系
+     *
+     * @param handler 结果处理器
+     */
+    @Select("select group_id, user_id from ibu_group_member;")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(GroupMemberDto.class)
+    void scanMembers(ResultHandler<GroupMemberDto> handler);
+
+    /**
+     * 获取用户组的全部成员ID
+     *
+     * @param id 用户组ID
+     * @return 用户ID集合
+     */
+    @Select("select user_id from ibu_group_member where group_id = #{id};")
+    List<Long> getGroupMemberIds(Long id);
+
+    /**
+     * 获取用户所属的用户组ID
+     *
+     * @param userId 用户ID
+     * @return 用户组ID集合
      */
-    @Select("select count(*) from ibu_group where tenant_id = #{tenantId} and code = #{code}")
-    int getGroupCount(@Param("tenantId") Long tenantId, @Param("code") String code);
+    @Select("select group_id from ibu_group_member where user_id = #{userId};")
+    List<Long> getUserGroupIds(Long userId);
 }
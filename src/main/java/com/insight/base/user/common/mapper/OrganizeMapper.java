@@ -0,0 +1,52 @@
+package com.insight.base.user.common.mapper;
+
+import com.insight.base.user.common.dto.OrganizeDto;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 组织机构及闭包表Mapper
+ */
+@Mapper
+public interface OrganizeMapper {
+
+    /**
+     * 获取组织机构数据版本(记录数及上下级关系校验和)
+     *
+     * @return 数据版本
+     */
+    @Select("select concat(count(*), '-', ifnull(sum(crc32(concat(id, '-', ifnull(parent_id, 0)))), 0)) from ibo_organize;")
+    String getVersion();
+
+    /**
+     * 获取全部组织机构节点
+     *
+     * @return 组织机构节点集合
+     */
+    @Select("select id, parent_id from ibo_organize;")
+    List<OrganizeDto> getOrganizes();
+
+    /**
+     * 清空组织机构闭包
+     */
+    @Delete("delete from ibu_organize_closure;")
+    void clearClosures();
+
+    /**
+     * 批量写入组织机构闭包
+     *
+     * @param closures 上级组织机构ID-全部下级组织机构ID(含自身)
+     */
+    @Insert("""
+            <script>
+            insert ibu_organize_closure (ancestor_id, descendant_id) values
+            <foreach collection = "map" index = "key" item = "value" separator = ",">
+            <foreach collection = "value" item = "item" separator = ",">(#{key}, #{item})</foreach></foreach>;
+            </script>
+            """)
+    void addClosures(@Param("map") Map<Long, List<Long>> closures);
+}
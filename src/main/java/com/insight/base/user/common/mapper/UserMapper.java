@@ -1,11 +1,17 @@
 package com.insight.base.user.common.mapper;
 
-import com.insight.base.user.common.dto.FuncPermitDto;
+import com.insight.base.user.common.dto.PermitRowDto;
+import com.insight.base.user.common.dto.TenantUserDto;
+import com.insight.base.user.common.dto.UserChangeDto;
+import com.insight.base.user.common.dto.UserEventDto;
+import com.insight.base.user.common.dto.UserKeyDto;
+import com.insight.base.user.common.dto.UserSearch;
 import com.insight.base.user.common.dto.UserVo;
-import com.insight.utils.pojo.base.Search;
 import com.insight.utils.pojo.user.User;
 import com.insight.utils.pojo.user.UserDto;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -18,35 +24,58 @@ import java.util.List;
 public interface UserMapper {
 
     /**
-     * 获取用户列表
-     *
-     * @param search 查询实体类
-     * @return 用户列表
+     * 用户列表查询语句,分页查询和导出共用
      */
-    @Select("""
+    String USERS = """
             <script>
-            select u.id, group_concat(t.name) as tenant, u.type, u.name, u.account, u.mobile, u.email, r.role_name, r.role_id,
-                   ifnull(a.invalid, u.invalid) as invalid, u.creator, u.created_time
+            select u.id, <if test = 'tenantId != null'>t.name</if><if test = 'tenantId == null'>s.tenant</if> as tenant, u.type, u.name,
+                   u.account, u.mobile, u.email, s.role_name, s.role_id,
+                   <if test = 'tenantId != null'>ifnull(a.invalid, u.invalid)</if><if test = 'tenantId == null'>u.invalid</if> as invalid, u.creator, u.created_time
             from ibu_user u
               <if test = 'longSet != null and longSet.size() > 0'>
               join ibo_organize_member m on m.user_id = u.id and m.post_id in
                 (<foreach collection = "longSet" item = "item" index = "index" separator = ",">#{item}</foreach>)</if>
-              left join ibt_tenant_user a on a.user_id = u.id
-              left join ibt_tenant t on t.id = a.tenant_id
-              left join (select m.member_id, group_concat(r.name) as role_name, group_concat(r.id) as role_id
-                         from ibr_role r
-                           join ibr_role_member m on m.role_id = r.id
-                         group by m.member_id) r on r.member_id = u.id
+              <if test = 'orgId != null'>
+              join ibo_organize_member m on m.user_id = u.id
+              join ibu_organize_closure c on c.descendant_id = m.post_id
+                and c.ancestor_id = #{orgId}</if>
+              <if test = 'tenantId != null'>
+              join ibt_tenant_user a on a.user_id = u.id
+                and a.tenant_id = #{tenantId}
+              join ibt_tenant t on t.id = a.tenant_id</if>
+              left join ibu_user_summary s on s.user_id = u.id
             <where>
-              <if test = 'tenantId != null'>and a.tenant_id = #{tenantId}</if>
-              <if test = 'invalid != null'>and ifnull(a.invalid, u.invalid) = #{invalid}</if>
+              <if test = 'invalid != null'>and <if test = 'tenantId != null'>ifnull(a.invalid, u.invalid)</if><if test = 'tenantId == null'>u.invalid</if> = #{invalid}</if>
               <if test = 'keyword != null'>and (u.id = #{keyword} or u.code = #{keyword} or u.account = #{keyword}
               or u.mobile = #{keyword} or u.name like concat('%',#{keyword},'%'))</if>
+              <if test = 'candidates != null'>and u.id in
+                (<foreach collection = "candidates" item = "item" index = "index" separator = ",">#{item}</foreach>)</if>
+              <if test = 'afterId != null'>and u.id > #{afterId}</if>
             </where>
             group by u.id
+            <if test = 'limit != null'>order by u.id limit #{limit}</if>
             </script>
-            """)
-    List<UserVo> getUsers(Search search);
+            """;
+
+    /**
+     * 获取用户列表
+     *
+     * @param search 查询实体类
+     * @return 用户列表
+     */
+    @Select(USERS)
+    List<UserVo> getUsers(UserSearch search);
+
+    /**
+     * 以流式读取方式遍历符合条件的用户
+     *
+     * @param search  查询实体类
+     * @param handler 结果处理器
+     */
+    @Select(USERS)
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(UserVo.class)
+    void exportUsers(UserSearch search, ResultHandler<UserVo> handler);
 
     /**
      * 获取用户详情
@@ -58,56 +87,51 @@ public interface UserMapper {
     User getUser(Long id);
 
     /**
-     * 获取用户功能授权
+     * 批量获取用户
      *
-     * @param id 用户ID
-     * @return 功能授权集合
+     * @param ids 用户ID集合
+     * @return 用户集合
      */
     @Select("""
-            select * from (select distinct a.id, null as parent_id, a.`index`, 0 as type, a.`name`, null as remark, null as permit
-            from ibv_user_roles r
-              join ibr_role_permit p on p.role_id = r.role_id
-              join ibs_function f on f.id = p.function_id
-              join ibs_navigator m on m.id = f.nav_id
-              join ibs_navigator g on g.id = m.parent_id
-              join ibs_application a on a.id = g.app_id
-            where r.user_id = #{id} union
-            select distinct g.id, g.app_id as parent_id, g.`index`, g.type, g.`name`, null as remark, null as permit
-            from ibv_user_roles r
-              join ibr_role_permit p on p.role_id = r.role_id
-              join ibs_function f on f.id = p.function_id
-              join ibs_navigator m on m.id = f.nav_id
-              join ibs_navigator g on g.id = m.parent_id
-            where r.user_id = #{id} union
-            select distinct m.id, m.parent_id, m.`index`, m.type, m.`name`, null as remark, null as permit
-            from ibv_user_roles r
-              join ibr_role_permit p on p.role_id = r.role_id
-              join ibs_function f on f.id = p.function_id
-              join ibs_navigator m on m.id = f.nav_id
-            where r.user_id = #{id} union
-            select f.id, f.nav_id as parent_id, f.`index`, min(p.permit) + 3 as type, f.`name`,
-            if(min(p.permit) = 0, '禁止', '允许') as remark, min(p.permit) as permit
-            from ibv_user_roles r
-              join ibr_role_permit p on p.role_id = r.role_id
-              join ibs_function f on f.id = p.function_id
-            where r.user_id = #{id} group by f.id) t order by t.`index`;
+            <script>
+            select * from ibu_user
+            where id in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>);
+            </script>
             """)
-    List<FuncPermitDto> getUserPermit(Long id);
+    List<User> getUsersByIds(@Param("list") List<Long> ids);
 
     /**
-     * 匹配关键词的用户是否存在
+     * 获取用户的角色ID
      *
-     * @param user 用户DTO
-     * @return 是否存在
+     * @param id 用户ID
+     * @return 角色ID集合(升序)
+     */
+    @Select("select distinct role_id from ibv_user_roles where user_id = #{id} order by role_id;")
+    List<Long> getRoleIds(Long id);
+
+    /**
+     * 获取角色集合的功能授权及各功能的上级导航、模块组和应用
+     *
+     * @param roleIds 角色ID集合
+     * @return 功能授权行集合
      */
     @Select("""
-            select count(*) from ibu_user
-            where id != #{id} and invalid = 0
-            and (account = #{account} or mobile = #{account} or email = #{account}
-              or account = #{mobile} or mobile = #{mobile} or email = #{mobile}
-              or account = #{email} or mobile = #{email} or email = #{email});
+            <script>
+            select f.id, f.nav_id as parent_id, f.`index`, f.`name`, p.permit,
+                   m.id as nav_id, m.parent_id as nav_parent_id, m.`index` as nav_index, m.type as nav_type, m.`name` as nav_name,
+                   g.id as group_id, g.app_id as group_parent_id, g.`index` as group_index, g.type as group_type, g.`name` as group_name,
+                   a.id as app_id, a.`index` as app_index, a.`name` as app_name
+            from (select function_id, min(permit) as permit
+                  from ibr_role_permit
+                  where role_id in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>)
+                  group by function_id) p
+              join ibs_function f on f.id = p.function_id
+              left join ibs_navigator m on m.id = f.nav_id
+              left join ibs_navigator g on g.id = m.parent_id
+              left join ibs_application a on a.id = g.app_id;
+            </script>
             """)
-    Boolean userIsExisted(UserDto user);
+    List<PermitRowDto> getPermitRows(@Param("list") List<Long> roleIds);
 
     /**
      * 新增用户
@@ -122,34 +146,99 @@ public interface UserMapper {
     void addUser(UserDto user);
 
     /**
-     * 匹配关键词的用户是否存在
+     * 批量新增用户
+     *
+     * @param users 用户DTO集合
+     */
+    @Insert("""
+            <script>
+            insert ibu_user(id, `type`, code, name, account, mobile, email, union_id, password, head_img, remark, builtin, creator, creator_id, created_time) values
+            <foreach collection = "list" item = "item" index = "index" separator = ",">
+            (#{item.id}, #{item.type}, #{item.code}, #{item.name}, #{item.account}, #{item.mobile}, #{item.email}, #{item.unionId}, #{item.password},
+            #{item.headImg}, #{item.remark}, #{item.builtin}, #{item.creator}, #{item.creatorId}, #{item.createdTime})</foreach>;
+            </script>
+            """)
+    void addUsers(@Param("list") List<UserDto> users);
+
+    /**
+     * 获取已被其他用户使用的登录标识
+     *
+     * @param id   用户ID
+     * @param keys 登录标识集合
+     * @return 已被使用的登录标识集合
+     */
+    @Select("""
+            <script>
+            select `key`, kind, user_id
+            from ibu_user_key
+            where `key` in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>)
+              and user_id != #{id};
+            </script>
+            """)
+    List<UserKeyDto> getUsedKeys(@Param("id") long id, @Param("list") List<String> keys);
+
+    /**
+     * 新增用户登录标识,由唯一约束保证标识不重复
+     *
+     * @param keys 登录标识集合
+     */
+    @Insert("""
+            <script>
+            insert ibu_user_key (`key`, kind, user_id) values
+            <foreach collection = "list" item = "item" index = "index" separator = ",">(#{item.key}, #{item.kind}, #{item.userId})</foreach>;
+            </script>
+            """)
+    void addKeys(@Param("list") List<UserKeyDto> keys);
+
+    /**
+     * 删除用户登录标识
      *
-     * @param id  用户ID
-     * @param key 查询关键词
-     * @return 是否存在
+     * @param id 用户ID
      */
-    @Select("select count(*) from ibu_user where (account = #{key} or mobile = #{key} or email = #{key}) and id != #{id};")
-    Boolean keyIsExisted(@Param("id") Long id, @Param("key") String key);
+    @Delete("delete from ibu_user_key where user_id = #{id};")
+    void removeKeys(Long id);
 
     /**
-     * 获取指定租户下指定编码的用户数量
+     * 获取指定租户下已被使用的用户编码
      *
      * @param tenantId 租户ID
-     * @param code     用户编码
-     * @return 用户数量
+     * @param codes    用户编码集合
+     * @return 已被使用的用户编码集合
      */
     @Select("""
             <script>
-            select count(*)
+            select u.code
+            from ibu_user u
+              <if test = 'tenantId != null'>
+              join ibt_tenant_user r on r.user_id = u.id
+                and r.tenant_id = #{tenantId}
+              </if>
+            where u.code in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>);
+            </script>
+            """)
+    List<String> getUsedCodes(@Param("tenantId") Long tenantId, @Param("list") List<String> codes);
+
+    /**
+     * 获取指定租户下指定格式的最大用户编码
+     *
+     * @param tenantId 租户ID
+     * @param prefix   编码前缀
+     * @param length   编码长度
+     * @return 最大用户编码
+     */
+    @Select("""
+            <script>
+            select max(u.code)
             from ibu_user u
               <if test = 'tenantId != null'>
               join ibt_tenant_user r on r.user_id = u.id
                 and r.tenant_id = #{tenantId}
               </if>
-            where u.code = #{code};
+            where u.code like concat(#{prefix}, '%')
+              and char_length(u.code) = #{length};
             </script>
             """)
-    Boolean codeIsExisted(@Param("tenantId") Long tenantId, @Param("code") String code);
+    String getMaxCode(@Param("tenantId") Long tenantId, @Param("prefix") String prefix, @Param("length") int length);
 
     /**
      * 匹配租户下的用户数
@@ -235,17 +324,62 @@ public interface UserMapper {
      * @param id 用户ID
      */
     @Delete("""
-            delete u, g, t, o, r
+            delete u, k, g, t, o, r, s
             from ibu_user u
+              left join ibu_user_key k on k.user_id = u.id
               left join ibu_group_member g on g.user_id = u.id
               left join ibt_tenant_user t on t.user_id = u.id
               left join ibo_organize_member o on o.user_id = u.id
               left join ibr_role_member r on r.member_id = u.id
                 and r.type = 1
+              left join ibu_user_summary s on s.user_id = u.id
             where u.id = #{id};
             """)
     void deleteUser(Long id);
 
+    /**
+     * 按ID顺序获取一段用户ID
+     *
+     * @param afterId 起始用户ID(不含)
+     * @param limit   数量
+     * @return 用户ID集合
+     */
+    @Select("select id from ibu_user where id > #{afterId} order by id limit #{limit};")
+    List<Long> getUserIds(long afterId, int limit);
+
+    /**
+     * 刷新用户摘要(所属租户及角色)
+     *
+     * @param ids 用户ID集合
+     */
+    @Insert("""
+            <script>
+            insert ibu_user_summary (user_id, tenant, role_id, role_name)
+            select u.id, t.tenant, r.role_id, r.role_name
+            from ibu_user u
+              left join (select a.user_id, group_concat(t.name) as tenant
+                         from ibt_tenant_user a
+                           join ibt_tenant t on t.id = a.tenant_id
+                         where a.user_id in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>)
+                         group by a.user_id) t on t.user_id = u.id
+              left join (select m.member_id, group_concat(r.id) as role_id, group_concat(r.name) as role_name
+                         from ibr_role_member m
+                           join ibr_role r on r.id = m.role_id
+                         where m.type = 1
+                           and m.member_id in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>)
+                         group by m.member_id) r on r.member_id = u.id
+            where u.id in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>)
+            on duplicate key update tenant = values(tenant), role_id = values(role_id), role_name = values(role_name);
+            </script>
+            """)
+    void refreshSummaries(@Param("list") List<Long> ids);
+
+    /**
+     * 删除已不存在用户的摘要
+     */
+    @Delete("delete s from ibu_user_summary s left join ibu_user u on u.id = s.user_id where u.id is null;")
+    void removeOrphanSummaries();
+
     /**
      * 获取可邀请用户列表
      *
@@ -253,6 +387,7 @@ public interface UserMapper {
      * @return 用户列表
      */
     @Select("""
+            <script>
             select u.id, u.code, u.name, u.account, u.mobile, u.remark, u.builtin, u.invalid
             from ibu_user u
               left join ibt_tenant_user r on r.user_id = u.id
@@ -260,8 +395,13 @@ public interface UserMapper {
             where u.invalid = 0
               and isnull(r.id)
               and (u.account = #{keyword} or u.mobile = #{keyword} or u.`name` like concat('%',#{keyword},'%'))
+              <if test = 'candidates != null'>and u.id in
+                (<foreach collection = "candidates" item = "item" index = "index" separator = ",">#{item}</foreach>)</if>
+              <if test = 'afterId != null'>and u.id > #{afterId}</if>
+            <if test = 'limit != null'>order by u.id limit #{limit}</if>
+            </script>
             """)
-    List<UserVo> getOtherUsers(Search search);
+    List<UserVo> getOtherUsers(UserSearch search);
 
     /**
      * 新增租户-用户关系
@@ -272,6 +412,47 @@ public interface UserMapper {
     @Insert("insert ibt_tenant_user(tenant_id, user_id) values (#{tenantId}, #{userId});")
     void addRelation(long tenantId, long userId);
 
+    /**
+     * 批量新增租户-用户关系
+     *
+     * @param tenantId 租户ID
+     * @param userIds  用户ID集合
+     */
+    @Insert("""
+            <script>
+            insert ibt_tenant_user(tenant_id, user_id) values
+            <foreach collection = "list" item = "item" index = "index" separator = ",">(#{tenantId}, #{item})</foreach>;
+            </script>
+            """)
+    void addRelations(@Param("tenantId") long tenantId, @Param("list") List<Long> userIds);
+
+    /**
+     * 批量加入组织机构
+     *
+     * @param users 用户DTO集合(需设置orgId)
+     */
+    @Insert("""
+            <script>
+            insert ibo_organize_member (post_id, user_id) values
+            <foreach collection = "list" item = "item" index = "index" separator = ",">(#{item.orgId}, #{item.id})</foreach>;
+            </script>
+            """)
+    void addOrgMembers(@Param("list") List<UserDto> users);
+
+    /**
+     * 批量加入角色成员
+     *
+     * @param users 用户DTO集合(需设置roleIds)
+     */
+    @Insert("""
+            <script>
+            insert ibr_role_member (type, role_id, member_id) values
+            <foreach collection = "list" item = "user" index = "index" separator = ",">
+            <foreach collection = "user.roleIds" item = "item" separator = ",">(1, #{item}, #{user.id})</foreach></foreach>;
+            </script>
+            """)
+    void addRoleMembers(@Param("list") List<UserDto> users);
+
     /**
      * 加入组织机构
      *
@@ -358,6 +539,157 @@ public interface UserMapper {
     @Select("select count(*) from ibu_user where invalid = 0 and (code = #{keyword} or account = #{keyword} or mobile = #{keyword});")
     int getCount(String keyword);
 
-    @Select("select id, name, account, mobile, union_id from ibu_user;")
-    List<User> getAllUser();
+    /**
+     * 以流式读取方式按ID顺序遍历全部用户的检索字段
+     *
+     * @param handler 结果处理器
+     */
+    @Select("select id, code, name, account, mobile, email from ibu_user order by id;")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(User.class)
+    void scanUsers(ResultHandler<User> handler);
+
+    /**
+     * 以流式读取方式遍历全部租户-用户关系
+     *
+     * @param handler 结果处理器
+     */
+    @Select("select tenant_id, user_id from ibt_tenant_user;")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(TenantUserDto.class)
+    void scanTenantUsers(ResultHandler<TenantUserDto> handler);
+
+    /**
+     * 批量获取用户的检索字段
+     *
+     * @param ids 用户ID集合
+     * @return 用户集合
+     */
+    @Select("""
+            <script>
+            select id, code, name, account, mobile, email from ibu_user
+            where id in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>);
+            </script>
+            """)
+    List<User> getSearchFields(@Param("list") List<Long> ids);
+
+    /**
+     * 批量获取用户的租户-用户关系
+     *
+     * @param ids 用户ID集合
+     * @return 租户-用户关系集合
+     */
+    @Select("""
+            <script>
+            select tenant_id, user_id from ibt_tenant_user
+            where user_id in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>);
+            </script>
+            """)
+    List<TenantUserDto> getTenantUsers(@Param("list") List<Long> ids);
+
+    /**
+     * 获取最大变更序号
+     *
+     * @return 最大变更序号,无变更时返回0
+     */
+    @Select("select ifnull(max(seq), 0) from ibu_user_change;")
+    long getMaxChangeSeq();
+
+    /**
+     * 获取序号区间内的变更数,小于区间长度时说明区间内存在序号空缺
+     *
+     * @param after 起始序号(不含)
+     * @param upper 截止序号(含)
+     * @return 变更数
+     */
+    @Select("select count(*) from ibu_user_change where seq > #{after} and seq <= #{upper};")
+    long countChanges(long after, long upper);
+
+    /**
+     * 获取一段变更的截止序号,只包含已超过延迟时长的变更,避免遗漏序号较小但尚未提交的变更
+     *
+     * @param after 起始序号(不含)
+     * @param limit 数量
+     * @param lag   延迟时长(秒)
+     * @return 截止序号,没有变更时返回null
+     */
+    @Select("""
+            select max(seq) from (select seq from ibu_user_change
+                                  where seq > #{after} and changed_time < now() - interval #{lag} second
+                                  order by seq limit #{limit}) t;
+            """)
+    Long getChangeWatermark(long after, int limit, int lag);
+
+    /**
+     * 获取序号区间内发生变更的用户的当前数据,同一用户只返回一次
+     *
+     * @param after 起始序号(不含)
+     * @param upper 截止序号(含)
+     * @return 用户变更集合
+     */
+    @Select("""
+            select c.seq, c.user_id as id, u.id is null as deleted, u.code, u.name, u.account, u.mobile, u.email, u.invalid,
+                   (select group_concat(a.tenant_id) from ibt_tenant_user a where a.user_id = c.user_id) as tenant_ids
+            from (select user_id, max(seq) as seq from ibu_user_change
+                  where seq > #{after} and seq <= #{upper}
+                  group by user_id) c
+              left join ibu_user u on u.id = c.user_id
+            order by c.seq;
+            """)
+    List<UserChangeDto> getChanges(long after, long upper);
+
+    /**
+     * 获取超过保留天数的最大变更序号
+     *
+     * @param days 保留天数
+     * @return 变更序号,没有超期变更时返回null
+     */
+    @Select("select max(seq) from ibu_user_change where changed_time < now() - interval #{days} day;")
+    Long getExpiredChangeSeq(int days);
+
+    /**
+     * 删除指定序号及之前的变更
+     *
+     * @param seq 变更序号
+     * @return 删除行数
+     */
+    @Delete("delete from ibu_user_change where seq <= #{seq} limit 10000;")
+    int removeChanges(long seq);
+
+    /**
+     * 写入用户变更事件
+     *
+     * @param events 事件集合
+     */
+    @Insert("""
+            <script>
+            insert ibu_user_event(user_id, tenant_id, type, fields) values
+            <foreach collection = "list" item = "item" index = "index" separator = ",">
+            (#{item.userId}, #{item.tenantId}, #{item.type}, #{item.fields})
+            </foreach>;
+            </script>
+            """)
+    void addEvents(@Param("list") List<UserEventDto> events);
+
+    /**
+     * 按ID顺序获取待发布的用户变更事件
+     *
+     * @param limit 数量
+     * @return 事件集合
+     */
+    @Select("select id, user_id, tenant_id, type, fields, created_time from ibu_user_event order by id limit #{limit};")
+    List<UserEventDto> getEvents(int limit);
+
+    /**
+     * 删除已发布的用户变更事件
+     *
+     * @param ids 事件ID集合
+     */
+    @Delete("""
+            <script>
+            delete from ibu_user_event
+            where id in (<foreach collection = "list" item = "item" index = "index" separator = ",">#{item}</foreach>);
+            </script>
+            """)
+    void removeEvents(@Param("list") List<Long> ids);
 }
@@ -2,10 +2,11 @@ package com.insight.base.user.group;
 
 import com.insight.base.user.common.client.LogClient;
 import com.insight.base.user.common.client.LogServiceClient;
+import com.insight.base.user.common.dto.CursorPageDto;
 import com.insight.base.user.common.dto.GroupDto;
+import com.insight.base.user.common.dto.MemberResultDto;
 import com.insight.base.user.common.dto.OperateType;
-import com.insight.base.user.common.dto.UserVo;
-import com.insight.utils.Json;
+import com.insight.base.user.common.dto.UserSearch;
 import com.insight.utils.pojo.auth.LoginInfo;
 import com.insight.utils.pojo.base.BusinessException;
 import com.insight.utils.pojo.base.Reply;
@@ -41,14 +42,12 @@ public class GroupController {
     /**
      * 查询用户组列表
      *
-     * @param loginInfo   用户关键信息
+     * @param info   用户关键信息
      * @param search 查询实体类
      * @return Reply
      */
     @GetMapping("/v1.0/groups")
-    public Reply getGroups(@RequestHeader("loginInfo") String loginInfo, Search search) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
+    public Reply getGroups(LoginInfo info, Search search) {
         search.setTenantId(info.getTenantId());
         return service.getGroups(search);
     }
@@ -67,14 +66,12 @@ public class GroupController {
     /**
      * 新增用户组
      *
-     * @param loginInfo 用户关键信息
+     * @param info 用户关键信息
      * @param dto  用户组DTO
      * @return Reply
      */
     @PostMapping("/v1.0/groups")
-    public Long newGroup(@RequestHeader("loginInfo") String loginInfo, @Valid @RequestBody GroupDto dto) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
+    public Long newGroup(LoginInfo info, @Valid @RequestBody GroupDto dto) {
         var id = service.newGroup(info, dto);
         LogClient.writeLog(info, BUSINESS, OperateType.NEW, id, dto);
         return id;
@@ -83,13 +80,12 @@ public class GroupController {
     /**
      * 编辑用户组
      *
-     * @param loginInfo 用户关键信息
+     * @param info 用户关键信息
      * @param id   用户组ID
      * @param dto  用户组DTO
      */
     @PutMapping("/v1.0/groups/{id}")
-    public void editGroup(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id, @Valid @RequestBody GroupDto dto) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public void editGroup(LoginInfo info, @PathVariable Long id, @Valid @RequestBody GroupDto dto) {
         dto.setId(id);
 
         service.editGroup(info, dto);
@@ -99,13 +95,11 @@ public class GroupController {
     /**
      * 删除用户组
      *
-     * @param loginInfo 用户关键信息
+     * @param info 用户关键信息
      * @param id   用户组ID
      */
     @DeleteMapping("/v1.0/groups/{id}")
-    public void deleteGroup(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
+    public void deleteGroup(LoginInfo info, @PathVariable Long id) {
         service.deleteGroup(info, id);
         LogClient.writeLog(info, BUSINESS, OperateType.DELETE, id, null);
     }
@@ -118,7 +112,7 @@ public class GroupController {
      * @return Reply
      */
     @GetMapping("/v1.0/groups/{id}/members")
-    public Reply getMembers(@PathVariable Long id, Search search) {
+    public Reply getMembers(@PathVariable Long id, UserSearch search) {
         search.setId(id);
         return service.getMembers(search);
     }
@@ -126,70 +120,109 @@ public class GroupController {
     /**
      * 查询用户组可用用户列表
      *
-     * @param id 用户组ID
+     * @param id     用户组ID
+     * @param search 查询实体类
      * @return Reply
      */
     @GetMapping("/v1.0/groups/{id}/others")
-    public List<UserVo> getOthers(@PathVariable Long id) {
-        return service.getOthers(id);
+    public Reply getOthers(@PathVariable Long id, UserSearch search) {
+        search.setId(id);
+        return service.getOthers(search);
     }
 
     /**
      * 添加用户组成员
      *
-     * @param loginInfo    用户关键信息
+     * @param info    用户关键信息
      * @param id      用户组ID
      * @param userIds 用户ID集合
+     * @return 变更结果
      */
     @PostMapping("/v1.0/groups/{id}/members")
-    public void addMembers(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id, @RequestBody List<Long> userIds) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
-        service.addMembers(info, id, userIds);
+    public MemberResultDto addMembers(LoginInfo info, @PathVariable Long id, @RequestBody List<Long> userIds) {
+        var result = service.addMembers(info, id, userIds);
         LogClient.writeLog(info, BUSINESS, OperateType.NEW, id, userIds);
+        return result;
     }
 
     /**
      * 移除用户组成员
      *
-     * @param loginInfo    用户关键信息
+     * @param info    用户关键信息
      * @param id      用户组ID
      * @param userIds 用户ID集合
+     * @return 变更结果
      */
     @DeleteMapping("/v1.0/groups/{id}/members")
-    public void removeMembers(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id, @RequestBody List<Long> userIds) {
+    public MemberResultDto removeMembers(LoginInfo info, @PathVariable Long id, @RequestBody List<Long> userIds) {
         if (userIds == null || userIds.isEmpty()) {
             throw new BusinessException("请选择需要移除的成员");
         }
 
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-        service.removeMembers(info, id, userIds);
+        var result = service.removeMembers(info, id, userIds);
         LogClient.writeLog(info, BUSINESS, OperateType.DELETE, id, userIds);
+        return result;
+    }
+
+    /**
+     * 判断用户是否为用户组成员
+     *
+     * @param id     用户组ID
+     * @param userId 用户ID
+     * @return 是否成员
+     */
+    @GetMapping("/v1.0/groups/{id}/members/{userId}")
+    public Boolean isMember(@PathVariable Long id, @PathVariable Long userId) {
+        return service.isMember(id, userId);
+    }
+
+    /**
+     * 批量判断用户是否为用户组成员
+     *
+     * @param id      用户组ID
+     * @param userIds 用户ID集合
+     * @return 是用户组成员的用户ID集合
+     */
+    @PostMapping("/v1.0/groups/{id}/members/test")
+    public List<Long> filterMembers(@PathVariable Long id, @RequestBody List<Long> userIds) {
+        return service.filterMembers(id, userIds);
+    }
+
+    /**
+     * 对多个用户组的成员进行集合运算
+     *
+     * @param operator 运算:union(并集)/intersect(交集)/difference(第一个用户组减去其余用户组)
+     * @param groupIds 用户组ID集合
+     * @param after    起始用户ID(不含)
+     * @param size     返回的用户数
+     * @return 用户ID集合
+     */
+    @PostMapping("/v1.0/groups/members/{operator}")
+    public CursorPageDto<Long> computeMembers(@PathVariable String operator, @RequestBody List<Long> groupIds,
+                                              @RequestParam(required = false) Long after,
+                                              @RequestParam(required = false) Integer size) {
+        return service.computeMembers(operator, groupIds, after, size);
     }
 
     /**
      * 查询日志
      *
-     * @param loginInfo 用户登录信息
-     * @param search    查询条件
+     * @param search 查询条件
      * @return 日志集合
      */
     @GetMapping("/v1.0/groups/{id}/logs")
-    public Reply getAirportLogs(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id, Search search) {
-        var info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public Reply getAirportLogs(@PathVariable Long id, Search search) {
         return client.getLogs(id, "UserGroup", search.getKeyword());
     }
 
     /**
      * 获取日志
      *
-     * @param loginInfo 用户登录信息
-     * @param id        日志ID
+     * @param id 日志ID
      * @return 日志VO
      */
     @GetMapping("/v1.0/groups/logs/{id}")
-    public Reply getAirportLog(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        var info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public Reply getAirportLog(@PathVariable Long id) {
         return client.getLog(id);
     }
 }
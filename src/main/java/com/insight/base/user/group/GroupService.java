@@ -1,7 +1,9 @@
 package com.insight.base.user.group;
 
+import com.insight.base.user.common.dto.CursorPageDto;
 import com.insight.base.user.common.dto.GroupDto;
-import com.insight.base.user.common.dto.UserVo;
+import com.insight.base.user.common.dto.MemberResultDto;
+import com.insight.base.user.common.dto.UserSearch;
 import com.insight.utils.pojo.auth.LoginInfo;
 import com.insight.utils.pojo.base.Reply;
 import com.insight.utils.pojo.base.Search;
@@ -62,15 +64,15 @@ public interface GroupService {
      * @param search 查询实体类
      * @return Reply
      */
-    Reply getMembers(Search search);
+    Reply getMembers(UserSearch search);
 
     /**
      * 查询用户组可用用户列表
      *
-     * @param id 用户组ID
+     * @param search 查询实体类
      * @return Reply
      */
-    List<UserVo> getOthers(Long id);
+    Reply getOthers(UserSearch search);
 
     /**
      * 添加用户组成员
@@ -78,8 +80,9 @@ public interface GroupService {
      * @param info    用户关键信息
      * @param id      用户组ID
      * @param userIds 用户ID集合
+     * @return 变更结果
      */
-    void addMembers(LoginInfo info, Long id, List<Long> userIds);
+    MemberResultDto addMembers(LoginInfo info, Long id, List<Long> userIds);
 
     /**
      * 移除用户组成员
@@ -87,6 +90,36 @@ public interface GroupService {
      * @param info    用户关键信息
      * @param id      用户组ID
      * @param userIds 用户ID集合
+     * @return 变更结果
+     */
+    MemberResultDto removeMembers(LoginInfo info, Long id, List<Long> userIds);
+
+    /**
+     * 用户是否为用户组成员
+     *
+     * @param id     用户组ID
+     * @param userId 用户ID
+     * @return 是否成员
+     */
+    Boolean isMember(Long id, Long userId);
+
+    /**
+     * 筛选指定用户中的用户组成员
+     *
+     * @param id      用户组ID
+     * @param userIds 用户ID集合
+     * @return 是用户组成员的用户ID集合
+     */
+    List<Long> filterMembers(Long id, List<Long> userIds);
+
+    /**
+     * 对多个用户组的成员进行集合运算
+     *
+     * @param operator 运算:union/intersect/difference
+     * @param groupIds 用户组ID集合
+     * @param afterId  起始用户ID(不含)
+     * @param size     返回的用户数
+     * @return 用户ID集合
      */
-    void removeMembers(LoginInfo info, Long id, List<Long> userIds);
+    CursorPageDto<Long> computeMembers(String operator, List<Long> groupIds, Long afterId, Integer size);
 }
@@ -1,19 +1,28 @@
 package com.insight.base.user.group;
 
-import com.github.pagehelper.PageHelper;
+import com.insight.base.user.common.CodeAllocator;
+import com.insight.base.user.common.CountCache;
+import com.insight.base.user.common.GroupIndex;
+import com.insight.base.user.common.Pagination;
+import com.insight.base.user.common.UserIndex;
+import com.insight.base.user.common.dto.CursorPageDto;
 import com.insight.base.user.common.dto.GroupDto;
+import com.insight.base.user.common.dto.MemberResultDto;
+import com.insight.base.user.common.dto.UserSearch;
 import com.insight.base.user.common.dto.UserVo;
 import com.insight.base.user.common.mapper.GroupMapper;
-import com.insight.utils.ReplyHelper;
 import com.insight.utils.SnowflakeCreator;
 import com.insight.utils.pojo.auth.LoginInfo;
 import com.insight.utils.pojo.base.BusinessException;
 import com.insight.utils.pojo.base.Reply;
 import com.insight.utils.pojo.base.Search;
-import com.insight.utils.redis.Generator;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
 
 /**
  * @author 宣炳刚
@@ -22,18 +31,36 @@ import java.util.List;
  */
 @org.springframework.stereotype.Service
 public class GroupServiceImpl implements GroupService {
+    private static final int MAX_BATCH_SIZE = 5000;
+    private static final int MAX_GROUPS = 100;
     private final SnowflakeCreator creator;
     private final GroupMapper mapper;
+    private final CodeAllocator allocator;
+    private final UserIndex index;
+    private final CountCache counts;
+    private final GroupIndex groups;
+    private final int chunkSize;
 
     /**
      * 构造方法
      *
-     * @param creator 雪花算法ID生成器
-     * @param mapper  GroupMapper
+     * @param creator   雪花算法ID生成器
+     * @param mapper    GroupMapper
+     * @param allocator 编码分配器
+     * @param index     用户检索索引
+     * @param counts    分页总数缓存
+     * @param groups    用户组成员索引
+     * @param chunkSize 批量变更成员时每批处理的用户数
      */
-    public GroupServiceImpl(SnowflakeCreator creator, GroupMapper mapper) {
+    public GroupServiceImpl(SnowflakeCreator creator, GroupMapper mapper, CodeAllocator allocator, UserIndex index, CountCache counts,
+                            GroupIndex groups, @Value("${insight.user.group.chunk-size:500}") int chunkSize) {
         this.creator = creator;
         this.mapper = mapper;
+        this.allocator = allocator;
+        this.index = index;
+        this.counts = counts;
+        this.groups = groups;
+        this.chunkSize = chunkSize;
     }
 
     /**
@@ -44,11 +71,7 @@ public class GroupServiceImpl implements GroupService {
      */
     @Override
     public Reply getGroups(Search search) {
-        try (var page = PageHelper.startPage(search.getPageNum(), search.getPageSize()).setOrderBy(search.getOrderBy())
-                .doSelectPage(() -> mapper.getGroups(search))) {
-            var total = page.getTotal();
-            return total > 0 ? ReplyHelper.success(page.getResult(), total) : ReplyHelper.resultIsEmpty();
-        }
+        return counts.page("groups", search.getTenantId(), search, false, () -> mapper.getGroups(search));
     }
 
     /**
@@ -87,6 +110,7 @@ public class GroupServiceImpl implements GroupService {
         dto.setCreatedTime(LocalDateTime.now());
 
         mapper.addGroup(dto);
+        counts.bump(tenantId);
         return id;
     }
 
@@ -105,6 +129,7 @@ public class GroupServiceImpl implements GroupService {
         }
 
         mapper.updateGroup(dto);
+        counts.bump(group.getTenantId());
     }
 
     /**
@@ -121,6 +146,8 @@ public class GroupServiceImpl implements GroupService {
         }
 
         mapper.deleteGroup(id);
+        counts.bump(group.getTenantId());
+        groups.groupChanged(id);
     }
 
     /**
@@ -130,62 +157,165 @@ public class GroupServiceImpl implements GroupService {
      * @return Reply
      */
     @Override
-    public Reply getMembers(Search search) {
+    public Reply getMembers(UserSearch search) {
         GroupDto group = mapper.getGroup(search.getId());
         if (group == null) {
             throw new BusinessException("ID不存在,未读取数据");
         }
 
-        try (var page = PageHelper.startPage(search.getPageNum(), search.getPageSize()).setOrderBy(search.getOrderBy())
-                .doSelectPage(() -> mapper.getMembers(search))) {
-            var total = page.getTotal();
-            return total > 0 ? ReplyHelper.success(page.getResult(), total) : ReplyHelper.resultIsEmpty();
+        index.resolve(search, group.getTenantId());
+        if (search.getCursor() != null) {
+            return Pagination.cursorPage(search, () -> mapper.getMembers(search), UserVo::getId);
         }
+
+        var approx = Boolean.TRUE.equals(search.getApprox());
+        return counts.page("members", group.getTenantId(), search, approx, () -> mapper.getMembers(search));
     }
 
     /**
      * 查询用户组可用用户列表
      *
-     * @param id 用户组ID
+     * @param search 查询实体类
      * @return Reply
      */
     @Override
-    public List<UserVo> getOthers(Long id) {
-        return mapper.getOthers(id);
+    public Reply getOthers(UserSearch search) {
+        GroupDto group = mapper.getGroup(search.getId());
+        if (group == null) {
+            throw new BusinessException("ID不存在,未读取数据");
+        }
+
+        Pagination.checkPageSize(search);
+        index.resolve(search, group.getTenantId());
+        if (search.getCursor() != null) {
+            return Pagination.cursorPage(search, () -> mapper.getOthers(search), UserVo::getId);
+        }
+
+        var approx = Boolean.TRUE.equals(search.getApprox());
+        return counts.page("groupOthers", group.getTenantId(), search, approx, () -> mapper.getOthers(search));
     }
 
     /**
-     * 添加用户组成员
+     * 添加用户组成员:去重并跳过已有成员后分批插入,每批独立提交以缩短锁定时长
      *
      * @param info    用户关键信息
      * @param id      用户组ID
      * @param userIds 用户ID集合
+     * @return 变更结果
      */
     @Override
-    public void addMembers(LoginInfo info, Long id, List<Long> userIds) {
+    public MemberResultDto addMembers(LoginInfo info, Long id, List<Long> userIds) {
         GroupDto group = mapper.getGroup(id);
         if (group == null) {
             throw new BusinessException("ID不存在,未更新数据");
         }
 
-        mapper.addMembers(id, userIds);
+        var result = mutate(userIds, chunk -> {
+            var members = new HashSet<>(mapper.getMemberIds(id, chunk));
+            var list = chunk.stream().filter(i -> !members.contains(i)).toList();
+            return list.isEmpty() ? 0 : mapper.addMembers(id, list);
+        });
+
+        counts.bump(group.getTenantId());
+        groups.groupChanged(id);
+        return result;
     }
 
     /**
-     * 移除用户组成员
+     * 移除用户组成员:去重后分批删除,每批独立提交以缩短锁定时长
      *
      * @param info    用户关键信息
      * @param id      用户组ID
      * @param userIds 用户ID集合
+     * @return 变更结果
      */
     @Override
-    public void removeMembers(LoginInfo info, Long id, List<Long> userIds) {
+    public MemberResultDto removeMembers(LoginInfo info, Long id, List<Long> userIds) {
         GroupDto group = mapper.getGroup(id);
         if (group == null) {
             throw new BusinessException("ID不存在,未删除数据");
         }
 
-        mapper.removeMembers(id, userIds);
+        var result = mutate(userIds, chunk -> mapper.removeMembers(id, chunk));
+        counts.bump(group.getTenantId());
+        groups.groupChanged(id);
+        return result;
+    }
+
+    /**
+     * 用户是否为用户组成员
+     *
+     * @param id     用户组ID
+     * @param userId 用户ID
+     * @return 是否成员
+     */
+    @Override
+    public Boolean isMember(Long id, Long userId) {
+        return groups.contains(id, userId);
+    }
+
+    /**
+     * 筛选指定用户中的用户组成员
+     *
+     * @param id      用户组ID
+     * @param userIds 用户ID集合
+     * @return 是用户组成员的用户ID集合
+     */
+    @Override
+    public List<Long> filterMembers(Long id, List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return List.of();
+        }
+
+        if (userIds.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("每次最多判断" + MAX_BATCH_SIZE + "个用户");
+        }
+
+        return groups.filter(id, userIds);
+    }
+
+    /**
+     * 对多个用户组的成员进行集合运算
+     *
+     * @param operator 运算:union/intersect/difference
+     * @param groupIds 用户组ID集合
+     * @param afterId  起始用户ID(不含)
+     * @param size     返回的用户数
+     * @return 用户ID集合
+     */
+    @Override
+    public CursorPageDto<Long> computeMembers(String operator, List<Long> groupIds, Long afterId, Integer size) {
+        if (groupIds != null && groupIds.size() > MAX_GROUPS) {
+            throw new BusinessException("每次最多对" + MAX_GROUPS + "个用户组进行运算");
+        }
+
+        return groups.compute(operator, groupIds, afterId, size);
+    }
+
+    /**
+     * 去重后分批执行成员变更并汇总结果
+     *
+     * @param userIds 用户ID集合
+     * @param action  每批的变更操作,返回变更的成员数
+     * @return 变更结果
+     */
+    private MemberResultDto mutate(List<Long> userIds, ToIntFunction<List<Long>> action) {
+        var requested = userIds == null ? 0 : userIds.size();
+        var ids = userIds == null ? List.<Long>of() : userIds.stream().filter(Objects::nonNull).distinct().toList();
+        var affected = 0;
+        var chunks = 0;
+        for (var i = 0; i < ids.size(); i += chunkSize) {
+            affected += action.applyAsInt(ids.subList(i, Math.min(ids.size(), i + chunkSize)));
+            chunks++;
+        }
+
+        var result = new MemberResultDto();
+        result.setRequested(requested);
+        result.setDistinct(ids.size());
+        result.setAffected(affected);
+        result.setSkipped(ids.size() - affected);
+        result.setChunks(chunks);
+        return result;
     }
 
     /**
@@ -196,14 +326,7 @@ public class GroupServiceImpl implements GroupService {
      */
     private String newGroupCode(Long tenantId) {
         String group = "UserGroup:" + tenantId;
-        while (true) {
-            String code = Generator.newCode("#4", group, false);
-            int count = mapper.getGroupCount(tenantId, code);
-            if (count > 0) {
-                continue;
-            }
-
-            return code;
-        }
+        return allocator.allocate(group, "#4", 1, () -> mapper.getMaxCode(tenantId, 4),
+                codes -> mapper.getUsedCodes(tenantId, codes)).get(0);
     }
 }
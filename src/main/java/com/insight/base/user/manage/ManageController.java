@@ -2,18 +2,28 @@ package com.insight.base.user.manage;
 
 import com.insight.base.user.common.client.LogClient;
 import com.insight.base.user.common.client.LogServiceClient;
+import com.insight.base.user.common.dto.CursorPageDto;
 import com.insight.base.user.common.dto.FuncPermitDto;
+import com.insight.base.user.common.dto.ImportResultDto;
 import com.insight.base.user.common.dto.OperateType;
+import com.insight.base.user.common.dto.UserChangeDto;
+import com.insight.base.user.common.dto.UserSearch;
 import com.insight.base.user.common.dto.UserVo;
 import com.insight.utils.Json;
 import com.insight.utils.pojo.auth.LoginInfo;
 import com.insight.utils.pojo.base.Reply;
 import com.insight.utils.pojo.base.Search;
 import com.insight.utils.pojo.user.UserDto;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * @author 宣炳刚
@@ -41,13 +51,12 @@ public class ManageController {
     /**
      * 查询用户列表
      *
-     * @param loginInfo 用户关键信息
-     * @param search    查询实体类
+     * @param info   用户关键信息
+     * @param search 查询实体类
      * @return Reply
      */
     @GetMapping("/v1.0/users")
-    public Reply getUsers(@RequestHeader("loginInfo") String loginInfo, Search search) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public Reply getUsers(LoginInfo info, UserSearch search) {
         if (search.getTenantId() == null) {
             search.setTenantId(info.getTenantId());
         }
@@ -56,6 +65,39 @@ public class ManageController {
         return service.getUsers(search);
     }
 
+    /**
+     * 导出用户列表,查询条件同查询用户列表
+     *
+     * @param info     用户关键信息
+     * @param search   查询实体类
+     * @param format   导出格式(csv/ndjson)
+     * @param gzip     是否压缩
+     * @param response HttpServletResponse
+     * @throws IOException IOException
+     */
+    @GetMapping("/v1.0/users/export")
+    public void exportUsers(LoginInfo info, UserSearch search, @RequestParam(defaultValue = "csv") String format,
+                            @RequestParam(defaultValue = "false") boolean gzip, HttpServletResponse response) throws IOException {
+        if (search.getTenantId() == null) {
+            search.setTenantId(info.getTenantId());
+        }
+
+        search.setOwnerId(info.getOrgId());
+        var ndjson = "ndjson".equalsIgnoreCase(format);
+        var fileName = "users." + (ndjson ? "ndjson" : "csv") + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : ndjson ? "application/x-ndjson;charset=UTF-8" : "text/csv;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
+
+        var output = response.getOutputStream();
+        if (gzip) {
+            try (var stream = new GZIPOutputStream(output, 64 * 1024)) {
+                service.exportUsers(search, format, stream);
+            }
+        } else {
+            service.exportUsers(search, format, output);
+        }
+    }
+
     /**
      * 获取用户详情
      *
@@ -67,6 +109,17 @@ public class ManageController {
         return service.getUser(id);
     }
 
+    /**
+     * 批量获取用户
+     *
+     * @param ids 用户ID集合
+     * @return 用户集合(按请求顺序,不包含不存在的用户)
+     */
+    @PostMapping("/v1.0/users/list")
+    public List<UserVo> getUsersByIds(@RequestBody List<Long> ids) {
+        return service.getUsersByIds(ids);
+    }
+
     /**
      * 获取用户功能授权
      *
@@ -81,28 +134,53 @@ public class ManageController {
     /**
      * 新增用户
      *
-     * @param loginInfo 用户关键信息
-     * @param dto       用户DTO
+     * @param info 用户关键信息
+     * @param dto  用户DTO
      * @return Reply
      */
     @PostMapping("/v1.0/users")
-    public Long newUser(@RequestHeader("loginInfo") String loginInfo, @Valid @RequestBody UserDto dto) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
+    public Long newUser(LoginInfo info, @Valid @RequestBody UserDto dto) {
         var id = service.newUser(info, dto);
         LogClient.writeLog(info, BUSINESS, OperateType.NEW, id, dto);
         return id;
     }
 
+    /**
+     * 批量导入用户(JSON数组)
+     *
+     * @param info  用户关键信息
+     * @param users 用户DTO集合
+     * @return 逐行导入结果
+     */
+    @PostMapping(value = "/v1.0/users/imports", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<ImportResultDto> importUsers(LoginInfo info, @RequestBody List<UserDto> users) {
+        return importUsers(info, users.iterator());
+    }
+
+    /**
+     * 批量导入用户(NDJSON流, 每行一个用户DTO)
+     *
+     * @param info    用户关键信息
+     * @param request HttpServletRequest
+     * @return 逐行导入结果
+     * @throws IOException IOException
+     */
+    @PostMapping(value = "/v1.0/users/imports", consumes = "application/x-ndjson")
+    public List<ImportResultDto> importUsers(LoginInfo info, HttpServletRequest request) throws IOException {
+        try (var reader = request.getReader()) {
+            var users = reader.lines().filter(i -> !i.isBlank()).map(i -> Json.toBean(i, UserDto.class)).iterator();
+            return importUsers(info, users);
+        }
+    }
+
     /**
      * 编辑用户
      *
-     * @param loginInfo 用户关键信息
-     * @param dto       用户DTO
+     * @param info 用户关键信息
+     * @param dto  用户DTO
      */
     @PutMapping("/v1.0/users/{id}")
-    public void editUser(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id, @Valid @RequestBody UserDto dto) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public void editUser(LoginInfo info, @PathVariable Long id, @Valid @RequestBody UserDto dto) {
         dto.setId(id);
 
         service.editUser(info, dto);
@@ -112,13 +190,11 @@ public class ManageController {
     /**
      * 删除用户
      *
-     * @param loginInfo 用户关键信息
-     * @param id        用户ID
+     * @param info 用户关键信息
+     * @param id   用户ID
      */
     @DeleteMapping("/v1.0/users/{id}")
-    public void deleteUser(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
+    public void deleteUser(LoginInfo info, @PathVariable Long id) {
         service.deleteUser(info, id);
         LogClient.writeLog(info, BUSINESS, OperateType.DELETE, id, null);
     }
@@ -126,13 +202,11 @@ public class ManageController {
     /**
      * 禁用用户
      *
-     * @param loginInfo 用户关键信息
-     * @param id        用户ID
+     * @param info 用户关键信息
+     * @param id   用户ID
      */
     @PutMapping("/v1.0/users/{id}/disable")
-    public void disableUser(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
+    public void disableUser(LoginInfo info, @PathVariable Long id) {
         service.changeUserStatus(info, id, true);
         LogClient.writeLog(info, BUSINESS, OperateType.DISABLE, id, null);
     }
@@ -140,13 +214,11 @@ public class ManageController {
     /**
      * 启用用户
      *
-     * @param loginInfo 用户关键信息
-     * @param id        用户ID
+     * @param info 用户关键信息
+     * @param id   用户ID
      */
     @PutMapping("/v1.0/users/{id}/enable")
-    public void enableUser(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
+    public void enableUser(LoginInfo info, @PathVariable Long id) {
         service.changeUserStatus(info, id, false);
         LogClient.writeLog(info, BUSINESS, OperateType.ENABLE, id, null);
     }
@@ -154,13 +226,11 @@ public class ManageController {
     /**
      * 重置用户密码
      *
-     * @param loginInfo 用户关键信息
-     * @param id        用户ID
+     * @param info 用户关键信息
+     * @param id   用户ID
      */
     @PutMapping("/v1.0/users/{id}/password")
-    public void resetPassword(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
+    public void resetPassword(LoginInfo info, @PathVariable Long id) {
         service.resetPassword(info, id);
         LogClient.writeLog(info, BUSINESS, OperateType.EDIT, id, "重置密码");
     }
@@ -168,14 +238,12 @@ public class ManageController {
     /**
      * 获取可邀请用户列表
      *
-     * @param loginInfo 用户关键信息
-     * @param search    查询关键词
+     * @param info   用户关键信息
+     * @param search 查询关键词
      * @return Reply
      */
     @GetMapping("/v1.0/users/others")
-    public Reply getInviteUsers(@RequestHeader("loginInfo") String loginInfo, Search search) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
+    public Reply getInviteUsers(LoginInfo info, UserSearch search) {
         search.setTenantId(info.getTenantId());
         return service.getInviteUsers(search);
     }
@@ -183,37 +251,32 @@ public class ManageController {
     /**
      * 邀请用户
      *
-     * @param loginInfo 用户关键信息
-     * @param id        用户ID
+     * @param info 用户关键信息
+     * @param id   用户ID
      */
     @PostMapping("/v1.0/users/{id}/relation")
-    public void inviteUser(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
+    public void inviteUser(LoginInfo info, @PathVariable Long id) {
         service.inviteUser(info, id);
     }
 
     /**
      * 清退用户
      *
-     * @param loginInfo 用户关键信息
-     * @param id        用户ID
+     * @param info 用户关键信息
+     * @param id   用户ID
      */
     @DeleteMapping("/v1.0/users/{id}/relation")
-    public void removeUser(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public void removeUser(LoginInfo info, @PathVariable Long id) {
         service.removeUser(info, id);
     }
 
     /**
      * 清除绑定设备
      *
-     * @param loginInfo 用户关键信息
-     * @param id        用户ID
+     * @param id 用户ID
      */
     @DeleteMapping("/v1.0/users/{id}/devices")
-    public void removeDevice(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public void removeDevice(@PathVariable Long id) {
         service.removeDevice(id);
     }
 
@@ -228,29 +291,62 @@ public class ManageController {
         return service.getUserCount(keyword);
     }
 
+    /**
+     * 在后台重建用户摘要,重建结果见服务日志
+     *
+     * @param info 用户关键信息
+     */
+    @PostMapping("/v1.0/users/summaries")
+    public void rebuildSummaries(LoginInfo info) {
+        service.rebuildSummaries();
+        LogClient.writeLog(info, BUSINESS, OperateType.EDIT, null, "重建用户摘要");
+    }
+
+    /**
+     * 获取指定序号之后发生变更的用户,供下游增量同步
+     *
+     * @param after 起始序号(不含),为空时只返回当前序号
+     * @param size  最大变更数
+     * @return 用户变更集合及下次同步的起始序号
+     */
+    @GetMapping("/v1.0/users/changes")
+    public CursorPageDto<UserChangeDto> getChanges(@RequestParam(required = false) Long after, @RequestParam(required = false) Integer size) {
+        return service.getChanges(after, size);
+    }
+
     /**
      * 查询日志
      *
-     * @param loginInfo 用户登录信息
-     * @param search    查询条件
+     * @param search 查询条件
      * @return 日志集合
      */
     @GetMapping("/v1.0/users/{id}/logs")
-    public Reply getAirportLogs(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id, Search search) {
-        var info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public Reply getAirportLogs(@PathVariable Long id, Search search) {
         return client.getLogs(id, BUSINESS, search.getKeyword());
     }
 
     /**
      * 获取日志
      *
-     * @param loginInfo 用户登录信息
-     * @param id        日志ID
+     * @param id 日志ID
      * @return 日志VO
      */
     @GetMapping("/v1.0/users/logs/{id}")
-    public Reply getAirportLog(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        var info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public Reply getAirportLog(@PathVariable Long id) {
         return client.getLog(id);
     }
+
+    /**
+     * 批量导入用户并记录日志
+     *
+     * @param info  用户关键信息
+     * @param users 用户DTO迭代器
+     * @return 逐行导入结果
+     */
+    private List<ImportResultDto> importUsers(LoginInfo info, Iterator<UserDto> users) {
+        var results = service.importUsers(info, users);
+        var count = results.stream().filter(ImportResultDto::getSuccess).count();
+        LogClient.writeLog(info, BUSINESS, OperateType.NEW, null, "批量导入用户" + count + "/" + results.size());
+        return results;
+    }
 }
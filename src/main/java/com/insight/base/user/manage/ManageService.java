@@ -1,12 +1,18 @@
 package com.insight.base.user.manage;
 
+import com.insight.base.user.common.dto.CursorPageDto;
 import com.insight.base.user.common.dto.FuncPermitDto;
+import com.insight.base.user.common.dto.ImportResultDto;
+import com.insight.base.user.common.dto.UserChangeDto;
+import com.insight.base.user.common.dto.UserSearch;
 import com.insight.base.user.common.dto.UserVo;
 import com.insight.utils.pojo.auth.LoginInfo;
 import com.insight.utils.pojo.base.Reply;
-import com.insight.utils.pojo.base.Search;
 import com.insight.utils.pojo.user.UserDto;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -22,7 +28,17 @@ public interface ManageService {
      * @param search 查询实体类
      * @return Reply
      */
-    Reply getUsers(Search search);
+    Reply getUsers(UserSearch search);
+
+    /**
+     * 以流式读取方式导出用户列表
+     *
+     * @param search 查询实体类
+     * @param format 导出格式(csv/ndjson)
+     * @param output 输出流
+     * @throws IOException IOException
+     */
+    void exportUsers(UserSearch search, String format, OutputStream output) throws IOException;
 
     /**
      * 获取用户详情
@@ -32,6 +48,14 @@ public interface ManageService {
      */
     UserVo getUser(Long id);
 
+    /**
+     * 批量获取用户
+     *
+     * @param ids 用户ID集合
+     * @return 用户集合(按请求顺序,不包含不存在的用户)
+     */
+    List<UserVo> getUsersByIds(List<Long> ids);
+
     /**
      * 获取用户功能授权
      *
@@ -49,6 +73,15 @@ public interface ManageService {
      */
     Long newUser(LoginInfo info, UserDto dto);
 
+    /**
+     * 批量导入用户
+     *
+     * @param info  用户关键信息
+     * @param users 用户DTO迭代器
+     * @return 逐行导入结果
+     */
+    List<ImportResultDto> importUsers(LoginInfo info, Iterator<UserDto> users);
+
     /**
      * 编辑用户
      *
@@ -88,7 +121,7 @@ public interface ManageService {
      * @param search 查询关键词
      * @return Reply
      */
-    Reply getInviteUsers(Search search);
+    Reply getInviteUsers(UserSearch search);
 
     /**
      * 邀请用户
@@ -120,4 +153,18 @@ public interface ManageService {
      * @return 用户数量
      */
     int getUserCount(String keyword);
+
+    /**
+     * 在后台重建用户摘要
+     */
+    void rebuildSummaries();
+
+    /**
+     * 获取指定序号之后发生变更的用户
+     *
+     * @param after 起始序号(不含)
+     * @param size  最大变更数
+     * @return 用户变更集合及下次同步的起始序号
+     */
+    CursorPageDto<UserChangeDto> getChanges(Long after, Integer size);
 }
@@ -1,27 +1,49 @@
 package com.insight.base.user.manage;
 
-import com.github.pagehelper.PageHelper;
+import com.insight.base.user.common.CountCache;
 import com.insight.base.user.common.Core;
+import com.insight.base.user.common.GroupIndex;
+import com.insight.base.user.common.OrgClosure;
+import com.insight.base.user.common.Pagination;
+import com.insight.base.user.common.PermitCache;
+import com.insight.base.user.common.UserCache;
+import com.insight.base.user.common.UserChangeLog;
+import com.insight.base.user.common.UserEvents;
+import com.insight.base.user.common.UserIndex;
+import com.insight.base.user.common.UserSummary;
 import com.insight.base.user.common.client.OrgClient;
+import com.insight.base.user.common.dto.CursorPageDto;
 import com.insight.base.user.common.dto.FuncPermitDto;
+import com.insight.base.user.common.dto.ImportResultDto;
+import com.insight.base.user.common.dto.TenantUserDto;
+import com.insight.base.user.common.dto.UserChangeDto;
+import com.insight.base.user.common.dto.UserSearch;
 import com.insight.base.user.common.dto.UserVo;
 import com.insight.base.user.common.mapper.UserMapper;
-import com.insight.utils.ReplyHelper;
+import com.insight.utils.Json;
 import com.insight.utils.Util;
 import com.insight.utils.pojo.auth.LoginInfo;
 import com.insight.utils.pojo.base.BusinessException;
 import com.insight.utils.pojo.base.Reply;
-import com.insight.utils.pojo.base.Search;
 import com.insight.utils.pojo.base.TreeBase;
 import com.insight.utils.pojo.user.User;
 import com.insight.utils.pojo.user.UserDto;
-import com.insight.utils.redis.HashOps;
-import com.insight.utils.redis.KeyOps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * @author 宣炳刚
@@ -31,21 +53,52 @@ import java.util.List;
 @org.springframework.stereotype.Service
 public class ManageServiceImpl implements ManageService {
     private static final Logger LOGGER = LoggerFactory.getLogger(ManageServiceImpl.class);
+    private static final int IMPORT_CHUNK_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = 5000;
     private final UserMapper mapper;
     private final OrgClient client;
     private final Core core;
+    private final UserCache cache;
+    private final UserSummary summary;
+    private final UserIndex index;
+    private final PermitCache permits;
+    private final CountCache counts;
+    private final OrgClosure closure;
+    private final UserChangeLog changes;
+    private final UserEvents events;
+    private final GroupIndex groups;
 
     /**
      * 构造方法
      *
-     * @param mapper UserMapper
-     * @param client Feign客户端
-     * @param core   Core
+     * @param mapper  UserMapper
+     * @param client  Feign客户端
+     * @param core    Core
+     * @param cache   用户缓存
+     * @param summary 用户摘要
+     * @param index   用户检索索引
+     * @param permits 功能授权缓存
+     * @param counts  分页总数缓存
+     * @param closure 组织机构闭包索引
+     * @param changes 用户变更日志
+     * @param events  用户变更事件
+     * @param groups  用户组成员索引
      */
-    public ManageServiceImpl(UserMapper mapper, OrgClient client, Core core) {
+    public ManageServiceImpl(UserMapper mapper, OrgClient client, Core core, UserCache cache, UserSummary summary, UserIndex index,
+                             PermitCache permits, CountCache counts, OrgClosure closure, UserChangeLog changes,
+                             UserEvents events, GroupIndex groups) {
         this.mapper = mapper;
         this.client = client;
         this.core = core;
+        this.cache = cache;
+        this.summary = summary;
+        this.index = index;
+        this.permits = permits;
+        this.counts = counts;
+        this.closure = closure;
+        this.changes = changes;
+        this.events = events;
+        this.groups = groups;
     }
 
     /**
@@ -55,18 +108,49 @@ public class ManageServiceImpl implements ManageService {
      * @return Reply
      */
     @Override
-    public Reply getUsers(Search search) {
-        var orgId = search.getOwnerId();
-        if (orgId != null) {
-            List<TreeBase> orgList = client.getSubOrganizes(orgId).getListFromData(TreeBase.class);
-            search.setLongSet(orgList.stream().map(TreeBase::getId).toList());
+    public Reply getUsers(UserSearch search) {
+        scope(search);
+        if (search.getCursor() != null) {
+            return Pagination.cursorPage(search, () -> mapper.getUsers(search), UserVo::getId);
+        }
+
+        var approx = Boolean.TRUE.equals(search.getApprox());
+        return counts.page("users", search.getTenantId(), search, approx, () -> mapper.getUsers(search));
+    }
+
+    /**
+     * 以流式读取方式导出用户列表
+     *
+     * @param search 查询实体类
+     * @param format 导出格式(csv/ndjson)
+     * @param output 输出流
+     * @throws IOException IOException
+     */
+    @Override
+    public void exportUsers(UserSearch search, String format, OutputStream output) throws IOException {
+        scope(search);
+        var csv = !"ndjson".equalsIgnoreCase(format);
+        var writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        if (csv) {
+            writer.write('\uFEFF');
+            writer.write("ID,租户,类型,姓名,账号,手机号,Email,角色,是否禁用,创建人,创建时间\n");
         }
 
-        try (var page = PageHelper.startPage(search.getPageNum(), search.getPageSize()).setOrderBy(search.getOrderBy())
-                .doSelectPage(() -> mapper.getUsers(search))) {
-            var total = page.getTotal();
-            return total > 0 ? ReplyHelper.success(page.getResult(), total) : ReplyHelper.resultIsEmpty();
+        try {
+            mapper.exportUsers(search, context -> {
+                var user = context.getResultObject();
+                try {
+                    writer.write(csv ? toCsv(user) : Json.toJson(user));
+                    writer.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
         }
+
+        writer.flush();
     }
 
     /**
@@ -81,6 +165,28 @@ public class ManageServiceImpl implements ManageService {
         return data.convert(UserVo.class);
     }
 
+    /**
+     * 批量获取用户
+     *
+     * @param ids 用户ID集合
+     * @return 用户集合(按请求顺序,不包含不存在的用户)
+     */
+    @Override
+    public List<UserVo> getUsersByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+
+        var distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        if (distinct.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("单次最多获取" + MAX_BATCH_SIZE + "个用户");
+        }
+
+        var users = cache.getAll(distinct);
+        return distinct.stream().map(users::get).filter(Objects::nonNull).map(u -> u.convert(UserVo.class)).toList();
+    }
+
     /**
      * 获取用户功能授权
      *
@@ -90,7 +196,7 @@ public class ManageServiceImpl implements ManageService {
     @Override
     public List<FuncPermitDto> getUserPermit(Long id) {
         var data = getUserById(id);
-        return mapper.getUserPermit(id);
+        return permits.get(id);
     }
 
     /**
@@ -112,6 +218,39 @@ public class ManageServiceImpl implements ManageService {
         return core.processUser(dto);
     }
 
+    /**
+     * 批量导入用户
+     *
+     * @param info  用户关键信息
+     * @param users 用户DTO迭代器
+     * @return 逐行导入结果
+     */
+    @Override
+    public List<ImportResultDto> importUsers(LoginInfo info, Iterator<UserDto> users) {
+        Long tenantId = info.getTenantId();
+        var results = new ArrayList<ImportResultDto>();
+        var chunk = new ArrayList<UserDto>(IMPORT_CHUNK_SIZE);
+        while (users.hasNext()) {
+            var dto = users.next();
+            if (dto != null) {
+                // 导入只新增用户,忽略客户端提交的ID
+                dto.setId(null);
+                dto.setTenantId(tenantId);
+                dto.setType(tenantId == null ? 0 : 1);
+                dto.setCreator(info.getName());
+                dto.setCreatorId(info.getId());
+            }
+
+            chunk.add(dto);
+            if (chunk.size() == IMPORT_CHUNK_SIZE || !users.hasNext()) {
+                results.addAll(importChunk(chunk, results.size()));
+                chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+            }
+        }
+
+        return results;
+    }
+
     /**
      * 编辑用户
      *
@@ -139,6 +278,7 @@ public class ManageServiceImpl implements ManageService {
         if (roleIds != null && !roleIds.isEmpty()) {
             mapper.removeRoleRelation(info.getTenantId(), id);
             mapper.addRoleMember(id, roleIds);
+            summary.refresh(id);
         }
     }
 
@@ -149,19 +289,19 @@ public class ManageServiceImpl implements ManageService {
      * @param id   用户ID
      */
     @Override
+    @Transactional
     public void deleteUser(LoginInfo info, Long id) {
         var data = getUserById(id);
-
-        // 清理缓存
-        KeyOps.delete("ID:" + data.getAccount());
-        KeyOps.delete("ID:" + data.getMobile());
-        KeyOps.delete("ID:" + data.getEmail());
-        KeyOps.delete("ID:" + data.getUnionId());
-        KeyOps.delete("User:" + id);
-        KeyOps.delete("UserToken:" + id);
+        counts.bump(mapper.getTenantUsers(List.of(id)).stream().map(TenantUserDto::getTenantId).toList());
+        events.add(id, null, UserEvents.DELETED, null);
 
         // 删除数据
         mapper.deleteUser(id);
+
+        // 清理缓存
+        cache.remove(data);
+        index.changed(id);
+        groups.userChanged(id);
     }
 
     /**
@@ -172,6 +312,7 @@ public class ManageServiceImpl implements ManageService {
      * @param status 禁用/启用状态
      */
     @Override
+    @Transactional
     public void changeUserStatus(LoginInfo info, Long id, boolean status) {
         var user = mapper.getUser(id);
         if (user == null) {
@@ -180,16 +321,15 @@ public class ManageServiceImpl implements ManageService {
 
         if (info.getTenantId() != null) {
             mapper.disableUser(info.getTenantId(), id, status);
+            counts.bump(info.getTenantId());
+            events.add(id, info.getTenantId(), UserEvents.STATUS, List.of("invalid"));
             return;
         }
 
-        // 更新缓存
-        String key = "User:" + id;
-        if (KeyOps.hasKey(key)) {
-            HashOps.put(key, "invalid", status);
-        }
-
         mapper.updateStatus(id, status);
+        counts.bump(mapper.getTenantUsers(List.of(id)).stream().map(TenantUserDto::getTenantId).toList());
+        cache.update(id, "invalid", status);
+        events.add(id, null, UserEvents.STATUS, List.of("invalid"));
     }
 
     /**
@@ -199,6 +339,7 @@ public class ManageServiceImpl implements ManageService {
      * @param id   用户ID
      */
     @Override
+    @Transactional
     public void resetPassword(LoginInfo info, Long id) {
         var data = getUserById(id);
         if ("123".equals(data.getPassword())){
@@ -207,10 +348,8 @@ public class ManageServiceImpl implements ManageService {
 
         var password = Util.md5("123456");
         mapper.updatePassword(id, password);
-        String key = "User:" + id;
-        if (KeyOps.hasKey(key)) {
-            HashOps.put(key, "password", password);
-        }
+        cache.update(id, "password", password);
+        events.add(id, null, UserEvents.PASSWORD, List.of("password"));
     }
 
     /**
@@ -220,7 +359,7 @@ public class ManageServiceImpl implements ManageService {
      * @return Reply
      */
     @Override
-    public Reply getInviteUsers(Search search) {
+    public Reply getInviteUsers(UserSearch search) {
         Long tenantId = search.getTenantId();
         if (tenantId == null) {
             throw new BusinessException("租户ID不能为空");
@@ -230,11 +369,13 @@ public class ManageServiceImpl implements ManageService {
             throw new BusinessException("查询关键词不能为空");
         }
 
-        try (var page = PageHelper.startPage(search.getPageNum(), search.getPageSize()).setOrderBy(search.getOrderBy())
-                .doSelectPage(() -> mapper.getOtherUsers(search))) {
-            var total = page.getTotal();
-            return total > 0 ? ReplyHelper.success(page.getResult(), total) : ReplyHelper.resultIsEmpty();
+        index.resolveOutside(search, tenantId);
+        if (search.getCursor() != null) {
+            return Pagination.cursorPage(search, () -> mapper.getOtherUsers(search), UserVo::getId);
         }
+
+        var approx = Boolean.TRUE.equals(search.getApprox());
+        return counts.page("others", null, search, approx, () -> mapper.getOtherUsers(search));
     }
 
     /**
@@ -244,6 +385,7 @@ public class ManageServiceImpl implements ManageService {
      * @param id   用户ID
      */
     @Override
+    @Transactional
     public void inviteUser(LoginInfo info, Long id) {
         Long tenantId = info.getTenantId();
         if (tenantId == null) {
@@ -254,6 +396,10 @@ public class ManageServiceImpl implements ManageService {
         int count = mapper.matchRelation(tenantId, id);
         if (count == 0) {
             mapper.addRelation(tenantId, id);
+            summary.refresh(id);
+            index.changed(id);
+            counts.bump(tenantId);
+            events.add(id, tenantId, UserEvents.INVITED, null);
         }
     }
 
@@ -272,6 +418,11 @@ public class ManageServiceImpl implements ManageService {
         mapper.removeGroupRelation(tenantId, id);
         mapper.removeOrganizeRelation(tenantId, id);
         mapper.removeRoleRelation(tenantId, id);
+        summary.refresh(id);
+        index.changed(id);
+        groups.userChanged(id);
+        counts.bump(tenantId);
+        events.add(id, tenantId, UserEvents.REMOVED, null);
     }
 
     /**
@@ -299,6 +450,55 @@ public class ManageServiceImpl implements ManageService {
         return mapper.getCount(keyword);
     }
 
+    /**
+     * 导入一批用户,整批写入失败时回退为逐行写入(仍只新增用户并逐行校验)
+     *
+     * @param users  用户DTO集合
+     * @param offset 首行行号
+     * @return 逐行导入结果
+     */
+    private List<ImportResultDto> importChunk(List<UserDto> users, int offset) {
+        try {
+            return core.importUsers(users, offset);
+        } catch (Exception ex) {
+            LOGGER.warn("批量导入用户失败, 转为逐行导入: {}", ex.getMessage());
+        }
+
+        var results = new ArrayList<ImportResultDto>(users.size());
+        for (var i = 0; i < users.size(); i++) {
+            var dto = users.get(i);
+            try {
+                results.addAll(core.importUsers(Collections.singletonList(dto), offset + i));
+            } catch (Exception ex) {
+                results.add(new ImportResultDto(offset + i, dto, ex.getMessage()));
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * 在后台重建用户摘要
+     */
+    @Override
+    public void rebuildSummaries() {
+        if (!summary.rebuildAsync()) {
+            throw new BusinessException("用户摘要正在重建,请稍后再试");
+        }
+    }
+
+    /**
+     * 获取指定序号之后发生变更的用户
+     *
+     * @param after 起始序号(不含)
+     * @param size  最大变更数
+     * @return 用户变更集合及下次同步的起始序号
+     */
+    @Override
+    public CursorPageDto<UserChangeDto> getChanges(Long after, Integer size) {
+        return changes.getChanges(after, size);
+    }
+
     /**
      * 根据ID获取用户
      *
@@ -306,11 +506,63 @@ public class ManageServiceImpl implements ManageService {
      * @return 用户
      */
     private User getUserById(Long id) {
-        var user = mapper.getUser(id);
+        var user = cache.get(id);
         if (user == null) {
             throw new BusinessException("指定的用户不存在");
         }
 
         return user;
     }
+
+    /**
+     * 按组织机构和关键词确定查询范围
+     *
+     * @param search 查询实体类
+     */
+    private void scope(UserSearch search) {
+        var orgId = search.getOwnerId();
+        if (closure.contains(orgId)) {
+            search.setOrgId(orgId);
+        } else if (orgId != null) {
+            List<TreeBase> orgList = client.getSubOrganizes(orgId).getListFromData(TreeBase.class);
+            search.setLongSet(orgList.stream().map(TreeBase::getId).toList());
+        }
+
+        index.resolve(search, search.getTenantId());
+    }
+
+    /**
+     * 生成用户的CSV行
+     *
+     * @param user 用户
+     * @return CSV行
+     */
+    private static String toCsv(UserVo user) {
+        return String.join(",", String.valueOf(user.getId()), csv(user.getTenant()), String.valueOf(user.getType()), csv(user.getName()),
+                csv(user.getAccount()), csv(user.getMobile()), csv(user.getEmail()), csv(user.getRoleName()),
+                String.valueOf(Boolean.TRUE.equals(user.getInvalid())), csv(user.getCreator()),
+                user.getCreatedTime() == null ? "" : user.getCreatedTime().toString());
+    }
+
+    /**
+     * 转义CSV字段,以=、+、-、@、制表符或回车开头的值前加单引号,避免被表格软件当作公式执行
+     *
+     * @param value 字段值
+     * @return CSV字段
+     */
+    private static String csv(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+
+        if ("=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
 }
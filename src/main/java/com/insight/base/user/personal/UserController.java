@@ -4,7 +4,6 @@ import com.insight.base.user.common.dto.MobileDto;
 import com.insight.base.user.common.dto.PasswordDto;
 import com.insight.base.user.common.dto.UserVo;
 import com.insight.base.user.common.dto.WechatDto;
-import com.insight.utils.Json;
 import com.insight.utils.pojo.auth.LoginInfo;
 import com.insight.utils.pojo.base.BusinessException;
 import com.insight.utils.pojo.base.Reply;
@@ -33,13 +32,11 @@ public class UserController {
     /**
      * 获取当前用户详情
      *
-     * @param info 用户关键信息
+     * @param loginInfo 用户关键信息
      * @return Reply
      */
     @GetMapping("/v1.0/users/myself")
-    public UserVo getUser(@RequestHeader("loginInfo") String info) {
-        LoginInfo loginInfo = Json.toBeanFromBase64(info, LoginInfo.class);
-
+    public UserVo getUser(LoginInfo loginInfo) {
         return service.getUser(loginInfo.getId());
     }
 
@@ -57,53 +54,48 @@ public class UserController {
     /**
      * 更新用户昵称
      *
-     * @param info 用户关键信息
-     * @param name 昵称
+     * @param loginInfo 用户关键信息
+     * @param name      昵称
      */
     @PutMapping("/v1.0/users/name")
-    public void updateName(@RequestHeader("loginInfo") String info, @RequestBody String name) {
+    public void updateName(LoginInfo loginInfo, @RequestBody String name) {
         if (name == null || name.isEmpty()) {
             throw new BusinessException("昵称不能为空");
         }
 
-        LoginInfo loginInfo = Json.toBeanFromBase64(info, LoginInfo.class);
         service.updateName(loginInfo.getId(), name);
     }
 
     /**
      * 更新用户手机号
      *
-     * @param info 用户关键信息
-     * @param dto  手机验证码DTO
+     * @param loginInfo 用户关键信息
+     * @param dto       手机验证码DTO
      */
     @PutMapping("/v1.0/users/mobile")
-    public void updateMobile(@RequestHeader("loginInfo") String info, @RequestBody MobileDto dto) {
-        LoginInfo loginInfo = Json.toBeanFromBase64(info, LoginInfo.class);
+    public void updateMobile(LoginInfo loginInfo, @RequestBody MobileDto dto) {
         service.updateMobile(loginInfo.getId(), dto);
     }
 
     /**
      * 更新用户Email
      *
-     * @param info  用户关键信息
-     * @param email Email
+     * @param loginInfo 用户关键信息
+     * @param email     Email
      */
     @PutMapping("/v1.0/users/email")
-    public void updateEmail(@RequestHeader("loginInfo") String info, @RequestBody String email) {
-        LoginInfo loginInfo = Json.toBeanFromBase64(info, LoginInfo.class);
+    public void updateEmail(LoginInfo loginInfo, @RequestBody String email) {
         service.updateEmail(loginInfo.getId(), email);
     }
 
     /**
      * 更新用户微信号
      *
-     * @param info 用户关键信息
-     * @param dto  微信DTO
+     * @param loginInfo 用户关键信息
+     * @param dto       微信DTO
      */
     @PutMapping("/v1.0/users/wechat")
-    public void updateUnionId(@RequestHeader("loginInfo") String info, @RequestBody WechatDto dto) {
-        LoginInfo loginInfo = Json.toBeanFromBase64(info, LoginInfo.class);
-
+    public void updateUnionId(LoginInfo loginInfo, @RequestBody WechatDto dto) {
         dto.setId(loginInfo.getId());
         service.updateUnionId(dto);
     }
@@ -111,37 +103,33 @@ public class UserController {
     /**
      * 更新用户头像
      *
-     * @param info    用户关键信息
-     * @param headImg 头像
+     * @param loginInfo 用户关键信息
+     * @param headImg   头像
      */
     @PutMapping("/v1.0/users/head")
-    public void updateHeadImg(@RequestHeader("loginInfo") String info, @RequestBody String headImg) {
-        LoginInfo loginInfo = Json.toBeanFromBase64(info, LoginInfo.class);
+    public void updateHeadImg(LoginInfo loginInfo, @RequestBody String headImg) {
         service.updateHeadImg(loginInfo.getId(), headImg.replace("\"", ""));
     }
 
     /**
      * 更新用户备注
      *
-     * @param info   用户关键信息
-     * @param remark 备注
+     * @param loginInfo 用户关键信息
+     * @param remark    备注
      */
     @PutMapping("/v1.0/users/remark")
-    public void updateRemark(@RequestHeader("loginInfo") String info, @RequestBody String remark) {
-        LoginInfo loginInfo = Json.toBeanFromBase64(info, LoginInfo.class);
+    public void updateRemark(LoginInfo loginInfo, @RequestBody String remark) {
         service.updateRemark(loginInfo.getId(), remark);
     }
 
     /**
      * 修改密码
      *
-     * @param info 用户关键信息
-     * @param dto  密码DTO
+     * @param loginInfo 用户关键信息
+     * @param dto       密码DTO
      */
     @PutMapping("/v1.0/users/password")
-    public void changePassword(@RequestHeader("loginInfo") String info, @RequestBody PasswordDto dto) {
-        LoginInfo loginInfo = Json.toBeanFromBase64(info, LoginInfo.class);
-
+    public void changePassword(LoginInfo loginInfo, @RequestBody PasswordDto dto) {
         dto.setId(loginInfo.getId());
         service.changePassword(dto);
     }
@@ -160,13 +148,11 @@ public class UserController {
     /**
      * 设置支付密码
      *
-     * @param info 用户关键信息
-     * @param dto  密码DTO
+     * @param loginInfo 用户关键信息
+     * @param dto       密码DTO
      */
     @PostMapping("/v1.0/users/password/pay")
-    public void setPayPassword(@RequestHeader("loginInfo") String info, @RequestBody PasswordDto dto) {
-        LoginInfo loginInfo = Json.toBeanFromBase64(info, LoginInfo.class);
-
+    public void setPayPassword(LoginInfo loginInfo, @RequestBody PasswordDto dto) {
         dto.setId(loginInfo.getId());
         service.setPayPassword(dto);
     }
@@ -174,12 +160,11 @@ public class UserController {
     /**
      * 验证支付密码(供服务调用)
      *
-     * @param info 用户关键信息
-     * @param key  支付密码(MD5)
+     * @param loginInfo 用户关键信息
+     * @param key       支付密码(MD5)
      */
     @GetMapping("/v1.0/users/password/pay?key={key}")
-    public void verifyPayPw(@RequestHeader("loginInfo") String info, @RequestParam String key) {
-        LoginInfo loginInfo = Json.toBeanFromBase64(info, LoginInfo.class);
+    public void verifyPayPw(LoginInfo loginInfo, @RequestParam String key) {
         service.verifyPayPw(loginInfo.getId(), key);
     }
 }
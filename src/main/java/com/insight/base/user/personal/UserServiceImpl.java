@@ -1,10 +1,10 @@
 package com.insight.base.user.personal;
 
 import com.insight.base.user.common.Core;
+import com.insight.base.user.common.UserCache;
 import com.insight.base.user.common.client.AuthClient;
 import com.insight.base.user.common.client.MessageClient;
 import com.insight.base.user.common.dto.*;
-import com.insight.base.user.common.mapper.UserMapper;
 import com.insight.utils.Util;
 import com.insight.utils.WechatHelper;
 import com.insight.utils.pojo.base.BusinessException;
@@ -21,24 +21,24 @@ import org.springframework.stereotype.Service;
  */
 @Service
 public class UserServiceImpl implements UserService {
-    private final UserMapper mapper;
     private final MessageClient client;
     private final AuthClient authClient;
     private final Core core;
+    private final UserCache cache;
 
     /**
      * 构造方法
      *
-     * @param mapper     UserMapper
      * @param client     MessageClient
      * @param authClient AuthClient
      * @param core       Core
+     * @param cache      用户缓存
      */
-    public UserServiceImpl(UserMapper mapper, MessageClient client, AuthClient authClient, Core core) {
-        this.mapper = mapper;
+    public UserServiceImpl(MessageClient client, AuthClient authClient, Core core, UserCache cache) {
         this.client = client;
         this.authClient = authClient;
         this.core = core;
+        this.cache = cache;
     }
 
     /**
@@ -100,9 +100,7 @@ public class UserServiceImpl implements UserService {
         var mobile = dto.getMobile();
         var data = getUserById(id);
         if (Util.isNotEmpty(mobile)) {
-            if (mapper.keyIsExisted(id, mobile)) {
-                throw new BusinessException("手机号[" + mobile + "]已被使用");
-            }
+            core.matchUser(id, null, mobile, null);
 
             // 验证手机验证码
             var key = dto.getKey();
@@ -124,9 +122,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public void updateEmail(Long id, String email) {
         var data = getUserById(id);
-        if (Util.isNotEmpty(email) && mapper.keyIsExisted(id, email)) {
-            throw new BusinessException("Email[" + email + "]已被使用");
-        }
+        core.matchUser(id, null, null, email);
 
         core.processUser(data);
     }
@@ -203,10 +199,10 @@ public class UserServiceImpl implements UserService {
             throw new BusinessException("原密码错误,请输入正确的原密码");
         }
 
-        var key = "User:" + id;
         var password = dto.getPassword();
-        HashOps.put(key, "password", password);
-        mapper.updatePassword(id, password);
+        core.updatePassword(id, password);
+        HashOps.put("User:" + id, "password", password);
+        cache.evict(id);
     }
 
     /**
@@ -241,8 +237,9 @@ public class UserServiceImpl implements UserService {
 
         // 更新密码
         var password = dto.getPassword();
+        core.updatePassword(id, password);
         HashOps.put(key, "password", password);
-        mapper.updatePassword(id, password);
+        cache.evict(id);
 
         // 构造登录数据并返回Token
         var code = result.getData().toString();
@@ -275,8 +272,9 @@ public class UserServiceImpl implements UserService {
             throw new BusinessException(reply.getMessage());
         }
 
+        core.updatePayPassword(id, password);
         HashOps.put("User:" + id, "payPassword", password);
-        mapper.updatePayPassword(id, password);
+        cache.evict(id);
     }
 
     /**
@@ -304,7 +302,7 @@ public class UserServiceImpl implements UserService {
      * @return 用户
      */
     private UserDto getUserById(Long id) {
-        var user = mapper.getUser(id);
+        var user = cache.get(id);
         if (user == null) {
             throw new BusinessException("指定的用户不存在");
         }
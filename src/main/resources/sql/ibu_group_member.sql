@@ -0,0 +1,6 @@
+-- 用户组成员唯一约束: 批量添加成员时以insert ignore实现幂等
+-- 原表上就地删除历史重复数据(保留每组成员中id最小的一行)后在线添加唯一索引, 执行期间原表可正常读写;
+-- 若两条语句之间或建索引期间又写入了重复成员, alter将因重复键失败, 重新执行本脚本即可
+delete a from ibu_group_member a
+  join ibu_group_member b on b.group_id = a.group_id and b.user_id = a.user_id and b.id < a.id;
+alter table ibu_group_member add unique index idx_group_member_group_user (group_id, user_id), algorithm = inplace, lock = none;
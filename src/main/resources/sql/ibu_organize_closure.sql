@@ -0,0 +1,8 @@
+-- 组织机构闭包表: 每个组织机构与其全部下级组织机构(含自身)的对应关系, 由用户服务根据ibo_organize同步
+create table if not exists ibu_organize_closure
+(
+  ancestor_id   bigint unsigned not null comment '上级组织机构ID',
+  descendant_id bigint unsigned not null comment '下级组织机构ID(含自身)',
+  primary key (ancestor_id, descendant_id),
+  index idx_organize_closure_descendant_id (descendant_id)
+) engine = InnoDB comment '组织机构闭包';
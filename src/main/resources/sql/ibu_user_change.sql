@@ -0,0 +1,33 @@
+-- 用户变更日志表: 由触发器在用户及租户-用户关系变更时写入, 供下游按序号增量同步
+create table if not exists ibu_user_change
+(
+  seq          bigint unsigned not null auto_increment comment '变更序号',
+  user_id      bigint unsigned not null comment '用户ID',
+  changed_time datetime        not null default current_timestamp comment '变更时间',
+  primary key (seq),
+  index idx_user_change_changed_time (changed_time)
+) engine = InnoDB comment '用户变更日志';
+
+drop trigger if exists trg_user_change_insert;
+create trigger trg_user_change_insert after insert on ibu_user for each row
+  insert ibu_user_change (user_id) values (new.id);
+
+drop trigger if exists trg_user_change_update;
+create trigger trg_user_change_update after update on ibu_user for each row
+  insert ibu_user_change (user_id) values (new.id);
+
+drop trigger if exists trg_user_change_delete;
+create trigger trg_user_change_delete after delete on ibu_user for each row
+  insert ibu_user_change (user_id) values (old.id);
+
+drop trigger if exists trg_tenant_user_change_insert;
+create trigger trg_tenant_user_change_insert after insert on ibt_tenant_user for each row
+  insert ibu_user_change (user_id) values (new.user_id);
+
+drop trigger if exists trg_tenant_user_change_update;
+create trigger trg_tenant_user_change_update after update on ibt_tenant_user for each row
+  insert ibu_user_change (user_id) values (new.user_id);
+
+drop trigger if exists trg_tenant_user_change_delete;
+create trigger trg_tenant_user_change_delete after delete on ibt_tenant_user for each row
+  insert ibu_user_change (user_id) values (old.user_id);
@@ -0,0 +1,11 @@
+-- 用户变更事件发件箱: 与业务数据在同一事务中写入, 由用户服务在事务提交后发布到insight.user.event交换机并删除
+create table if not exists ibu_user_event
+(
+  id           bigint unsigned not null auto_increment comment '事件ID,同一用户的事件ID递增,可作为版本号',
+  user_id      bigint unsigned not null comment '用户ID',
+  tenant_id    bigint unsigned          default null comment '租户ID',
+  type         varchar(16)     not null comment '事件类型',
+  fields       varchar(256)             default null comment '变更字段,逗号分隔',
+  created_time datetime        not null default current_timestamp comment '创建时间',
+  primary key (id)
+) engine = InnoDB comment '用户变更事件发件箱';
@@ -0,0 +1,19 @@
+-- 用户登录标识索引表: 账号/手机号/Email统一唯一约束, 登录标识统一存储为小写
+create table if not exists ibu_user_key
+(
+  `key`   varchar(128)    not null comment '登录标识',
+  kind    tinyint         not null comment '标识类型: 0.账号; 1.手机号; 2.Email',
+  user_id bigint unsigned not null comment '用户ID',
+  primary key (`key`),
+  index idx_user_key_user_id (user_id)
+) engine = InnoDB comment '用户登录标识索引';
+
+-- 初始化存量数据
+insert ignore ibu_user_key (`key`, kind, user_id)
+select lower(account), 0, id from ibu_user where account is not null and account != '';
+
+insert ignore ibu_user_key (`key`, kind, user_id)
+select lower(mobile), 1, id from ibu_user where mobile is not null and mobile != '';
+
+insert ignore ibu_user_key (`key`, kind, user_id)
+select lower(email), 2, id from ibu_user where email is not null and email != '';
@@ -0,0 +1,25 @@
+-- 用户摘要表: 用户所属租户及角色的汇总数据, 由用户服务增量维护并定时重建
+create table if not exists ibu_user_summary
+(
+  user_id      bigint unsigned not null comment '用户ID',
+  tenant       varchar(1024)            default null comment '所属租户名称,逗号分隔',
+  role_id      varchar(1024)            default null comment '角色ID,逗号分隔',
+  role_name    varchar(1024)            default null comment '角色名称,逗号分隔',
+  updated_time datetime        not null default current_timestamp on update current_timestamp comment '更新时间',
+  primary key (user_id)
+) engine = InnoDB comment '用户摘要';
+
+-- 初始化存量数据(也可调用 POST /base/user/manage/v1.0/users/summaries 分批重建)
+insert ibu_user_summary (user_id, tenant, role_id, role_name)
+select u.id, t.tenant, r.role_id, r.role_name
+from ibu_user u
+  left join (select a.user_id, group_concat(t.name) as tenant
+             from ibt_tenant_user a
+               join ibt_tenant t on t.id = a.tenant_id
+             group by a.user_id) t on t.user_id = u.id
+  left join (select m.member_id, group_concat(r.id) as role_id, group_concat(r.name) as role_name
+             from ibr_role_member m
+               join ibr_role r on r.id = m.role_id
+             where m.type = 1
+             group by m.member_id) r on r.member_id = u.id
+on duplicate key update tenant = values(tenant), role_id = values(role_id), role_name = values(role_name);
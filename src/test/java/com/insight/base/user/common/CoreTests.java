@@ -0,0 +1,64 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.dto.ImportResultDto;
+import com.insight.base.user.common.dto.UserKeyDto;
+import com.insight.base.user.common.mapper.UserMapper;
+import com.insight.utils.SnowflakeCreator;
+import com.insight.utils.pojo.base.BusinessException;
+import com.insight.utils.pojo.user.UserDto;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户登录标识校验
+ */
+public class CoreTests {
+    private UserMapper mapper;
+    private Core core;
+
+    @BeforeEach
+    public void setUp() {
+        mapper = mock(UserMapper.class);
+        core = new Core(mock(SnowflakeCreator.class), mapper, mock(UserCache.class), mock(Validator.class), mock(CodeAllocator.class),
+                mock(UserSummary.class), mock(UserIndex.class), mock(CountCache.class), mock(UserEvents.class));
+    }
+
+    @Test
+    public void matchesKeysIgnoringCase() {
+        when(mapper.getUsedKeys(eq(0L), eq(List.of("tom", "tom@example.com"))))
+                .thenReturn(List.of(new UserKeyDto("Tom@Example.com", 2, 1L)));
+
+        var ex = assertThrows(BusinessException.class, () -> core.matchUser(null, "Tom", null, "TOM@example.com"));
+        assertEquals("Email[TOM@example.com]已被使用", ex.getMessage());
+    }
+
+    @Test
+    public void rejectsCaseOnlyDuplicatesInImport() {
+        when(mapper.getUsedKeys(anyLong(), anyList())).thenReturn(List.of(new UserKeyDto("jerry", 0, 1L), new UserKeyDto("TOM", 0, 2L)));
+
+        var results = core.importUsers(List.of(user("Jerry", "a@example.com"), user("tom", "B@example.com"),
+                user("Tom", "b@EXAMPLE.com")), 1);
+        assertEquals(List.of("账号[Jerry]已被使用", "账号[tom]已被使用", "账号/手机号/Email在导入数据中重复"),
+                results.stream().map(ImportResultDto::getMessage).toList());
+        verify(mapper).getUsedKeys(eq(0L), argThat(keys -> keys.size() == 4
+                && keys.containsAll(List.of("jerry", "a@example.com", "tom", "b@example.com"))));
+    }
+
+    private static UserDto user(String account, String email) {
+        var user = new UserDto();
+        user.setAccount(account);
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -0,0 +1,162 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.dto.GroupMemberDto;
+import com.insight.base.user.common.mapper.GroupMapper;
+import com.insight.utils.pojo.base.BusinessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户组成员位图索引
+ */
+public class GroupIndexTests {
+    private static final Map<Long, List<Long>> MEMBERS = Map.of(1L, List.of(1L, 2L, 3L, 4L), 2L, List.of(3L, 4L, 5L), 3L, List.of(4L));
+    private GroupMapper mapper;
+    private GroupIndex index;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        mapper = mock(GroupMapper.class);
+        doAnswer(invocation -> {
+            ResultHandler<GroupMemberDto> handler = invocation.getArgument(0);
+            MEMBERS.forEach((groupId, userIds) -> userIds.forEach(userId -> {
+                var member = new GroupMemberDto();
+                member.setGroupId(groupId);
+                member.setUserId(userId);
+                handler.handleResult(new Row<>(member));
+            }));
+
+            return null;
+        }).when(mapper).scanMembers(any(ResultHandler.class));
+
+        index = new GroupIndex(mapper, mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class), new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void rejectsComputeBeforeBuilt() {
+        assertThrows(BusinessException.class, () -> index.compute("union", List.of(1L), null, null));
+    }
+
+    @Test
+    public void rejectsInvalidOperator() {
+        index.rebuild();
+        assertThrows(BusinessException.class, () -> index.compute("xor", List.of(1L, 2L), null, null));
+        assertThrows(BusinessException.class, () -> index.compute("union", List.of(), null, null));
+    }
+
+    @Test
+    public void pagesUnion() {
+        index.rebuild();
+        var first = index.compute("union", List.of(1L, 2L), null, 2);
+        assertEquals(List.of(1L, 2L), first.getList());
+        assertEquals("2", first.getNext());
+        assertEquals(5L, first.getTotal());
+
+        var second = index.compute("union", List.of(1L, 2L), Long.valueOf(first.getNext()), 2);
+        assertEquals(List.of(3L, 4L), second.getList());
+        assertEquals("4", second.getNext());
+
+        var last = index.compute("union", List.of(1L, 2L), Long.valueOf(second.getNext()), 2);
+        assertEquals(List.of(5L), last.getList());
+        assertNull(last.getNext());
+    }
+
+    @Test
+    public void pagesIntersect() {
+        index.rebuild();
+        var first = index.compute("intersect", List.of(1L, 2L), null, 1);
+        assertEquals(List.of(3L), first.getList());
+        assertEquals("3", first.getNext());
+        assertEquals(2L, first.getTotal());
+
+        var last = index.compute("intersect", List.of(1L, 2L), 3L, 1);
+        assertEquals(List.of(4L), last.getList());
+        assertNull(last.getNext());
+
+        var unknown = index.compute("intersect", List.of(1L, 99L), null, null);
+        assertEquals(List.of(), unknown.getList());
+        assertEquals(0L, unknown.getTotal());
+    }
+
+    @Test
+    public void pagesDifference() {
+        index.rebuild();
+        var first = index.compute("difference", List.of(1L, 2L, 3L), null, 1);
+        assertEquals(List.of(1L), first.getList());
+        assertEquals("1", first.getNext());
+        assertEquals(2L, first.getTotal());
+
+        var last = index.compute("difference", List.of(1L, 2L, 3L), 1L, 1);
+        assertEquals(List.of(2L), last.getList());
+        assertNull(last.getNext());
+    }
+
+    @Test
+    public void reconcilesUserGroups() {
+        index.rebuild();
+
+        // 用户4退出用户组1和3, 加入新用户组7
+        when(mapper.getUserGroupIds(4L)).thenReturn(List.of(2L, 7L));
+        index.apply("U4");
+
+        assertFalse(index.contains(1L, 4L));
+        assertTrue(index.contains(2L, 4L));
+        assertTrue(index.contains(7L, 4L));
+        assertTrue(index.contains(1L, 3L));
+        assertEquals(0L, index.compute("union", List.of(3L), null, null).getTotal());
+        assertEquals(List.of(1L, 2L, 3L), index.filter(1L, List.of(1L, 2L, 3L, 4L)));
+    }
+
+    @Test
+    public void reloadsGroupMembers() {
+        index.rebuild();
+        when(mapper.getGroupMemberIds(1L)).thenReturn(List.of(9L));
+        when(mapper.getGroupMemberIds(2L)).thenReturn(List.of());
+        index.apply("G1");
+        index.apply("G2");
+
+        assertTrue(index.contains(1L, 9L));
+        assertFalse(index.contains(1L, 1L));
+        assertEquals(0L, index.compute("union", List.of(2L), null, null).getTotal());
+    }
+
+    /**
+     * 流式读取的单行结果
+     */
+    private record Row<T>(T value) implements ResultContext<T> {
+
+        @Override
+        public T getResultObject() {
+            return value;
+        }
+
+        @Override
+        public int getResultCount() {
+            return 0;
+        }
+
+        @Override
+        public boolean isStopped() {
+            return false;
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.insight.base.user.common;
+
+import com.insight.utils.pojo.message.Log;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 操作日志异步发布: 重试、队列满处理策略和停止时的剩余日志处理
+ */
+public class LogPublisherTests {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RabbitTemplate template = mock(RabbitTemplate.class);
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final CountDownLatch released = new CountDownLatch(1);
+    private LogPublisher publisher;
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        released.countDown();
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+    }
+
+    @Test
+    public void sendsQueuedLogs() {
+        broker(0, false);
+        publisher = publisher(LogPublisher.Overflow.BLOCK, 100, 0);
+        for (var i = 0; i < 3; i++) {
+            publisher.publish(new Log());
+        }
+
+        verify(template, timeout(3000).times(3)).convertAndSend(eq("amq.topic"), eq("insight.log"), any(Object.class));
+    }
+
+    @Test
+    public void retriesFailedBatch() {
+        broker(2, false);
+        publisher = publisher(LogPublisher.Overflow.BLOCK, 100, 3);
+        publisher.publish(new Log());
+
+        await(() -> attempts.get() == 3);
+        verify(template, timeout(3000).times(1)).convertAndSend(eq("amq.topic"), eq("insight.log"), any(Object.class));
+        assertEquals(0, registry.counter("log.dropped").count());
+        assertEquals(2, registry.counter("log.failed").count());
+    }
+
+    @Test
+    public void dropsAfterRetries() {
+        broker(Integer.MAX_VALUE, false);
+        publisher = publisher(LogPublisher.Overflow.DROP, 100, 2);
+        publisher.publish(new Log());
+
+        await(() -> registry.counter("log.dropped").count() == 1);
+        assertEquals(3, attempts.get());
+        assertEquals(3, registry.counter("log.failed").count());
+    }
+
+    @Test
+    public void dropsWhenQueueIsFull() {
+        broker(0, true);
+        publisher = publisher(LogPublisher.Overflow.DROP, 1, 0);
+        publisher.publish(new Log());
+        await(() -> attempts.get() == 1);
+
+        publisher.publish(new Log());
+        publisher.publish(new Log());
+        assertEquals(1, registry.counter("log.dropped").count());
+    }
+
+    @Test
+    public void blocksThenDropsWhenQueueIsFull() {
+        broker(0, true);
+        publisher = publisher(LogPublisher.Overflow.BLOCK, 1, 0);
+        publisher.publish(new Log());
+        await(() -> attempts.get() == 1);
+
+        publisher.publish(new Log());
+        var start = System.nanoTime();
+        publisher.publish(new Log());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertEquals(1, registry.counter("log.dropped").count());
+    }
+
+    @Test
+    public void spillsWhenQueueIsFull() throws Exception {
+        broker(0, true);
+        publisher = publisher(LogPublisher.Overflow.SPILL, 1, 0);
+        publisher.publish(new Log());
+        await(() -> attempts.get() == 1);
+
+        publisher.publish(new Log());
+        publisher.publish(new Log());
+        assertEquals(0, registry.counter("log.dropped").count());
+        assertEquals(1, registry.counter("log.spilled").count());
+        assertEquals(1, Files.readAllLines(dir.resolve("spill.ndjson"), StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void sendsRemainingLogsOnShutdown() throws InterruptedException {
+        broker(0, false);
+        publisher = publisher(LogPublisher.Overflow.BLOCK, 100, 0);
+        for (var i = 0; i < 5; i++) {
+            publisher.publish(new Log());
+        }
+
+        publisher.shutdown();
+        verify(template, times(5)).convertAndSend(eq("amq.topic"), eq("insight.log"), any(Object.class));
+        assertEquals(0, registry.counter("log.dropped").count());
+        publisher = null;
+    }
+
+    @Test
+    public void spillsUnsentLogsOnShutdown() throws Exception {
+        broker(0, true);
+        publisher = publisher(LogPublisher.Overflow.SPILL, 100, 0);
+        publisher.publish(new Log());
+        await(() -> attempts.get() == 1);
+        publisher.publish(new Log());
+        publisher.publish(new Log());
+
+        // 后台线程阻塞在发送中, 停止时被中断, 在途及队列中剩余的日志均写入本地文件
+        publisher.shutdown();
+        assertEquals(3, Files.readAllLines(dir.resolve("spill.ndjson"), StandardCharsets.UTF_8).size());
+        assertEquals(0, registry.counter("log.dropped").count());
+        publisher = null;
+    }
+
+    /**
+     * 模拟未开启发布确认的Broker
+     *
+     * @param failures 前若干次发送失败
+     * @param hold     首次发送是否阻塞至测试结束
+     */
+    @SuppressWarnings("unchecked")
+    private void broker(int failures, boolean hold) {
+        var factory = mock(ConnectionFactory.class);
+        when(template.getConnectionFactory()).thenReturn(factory);
+        when(template.invoke(any(RabbitOperations.OperationsCallback.class))).thenAnswer(invocation -> {
+            var attempt = attempts.incrementAndGet();
+            if (hold && attempt == 1) {
+                released.await();
+            }
+
+            if (attempt <= failures) {
+                throw new AmqpException("Broker不可用");
+            }
+
+            RabbitOperations.OperationsCallback<Object> callback = invocation.getArgument(0);
+            return callback.doInRabbit(template);
+        });
+    }
+
+    private LogPublisher publisher(LogPublisher.Overflow overflow, int capacity, int maxRetries) {
+        return new LogPublisher(template, registry, capacity, overflow, 100, 50, 500, maxRetries, 1,
+                dir.resolve("spill.ndjson").toString());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        var deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                fail(ex);
+            }
+        }
+    }
+}
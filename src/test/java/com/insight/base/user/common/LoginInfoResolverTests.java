@@ -0,0 +1,100 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.config.LoginInfoResolver;
+import com.insight.utils.Json;
+import com.insight.utils.pojo.auth.LoginInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.MissingRequestHeaderException;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户关键信息参数解析
+ */
+public class LoginInfoResolverTests {
+    private static final int ROUNDS = 100000;
+
+    @Test
+    public void resolvesHeaderOnce() throws Exception {
+        var header = header(1L);
+        var request = request(header);
+        var resolver = new LoginInfoResolver(new SimpleMeterRegistry(), 100, 600);
+
+        var first = (LoginInfo) resolver.resolveArgument(null, null, request, null);
+        assertEquals(1L, first.getId());
+        assertEquals(10L, first.getTenantId());
+        assertSame(first, resolver.resolveArgument(null, null, request, null));
+    }
+
+    @Test
+    public void rejectsMissingHeader() {
+        var resolver = new LoginInfoResolver(new SimpleMeterRegistry(), 100, 600);
+        var parameter = mock(MethodParameter.class);
+        assertThrows(MissingRequestHeaderException.class, () -> resolver.resolveArgument(parameter, null, request(null), null));
+        assertThrows(MissingRequestHeaderException.class, () -> resolver.resolveArgument(parameter, null, request(""), null));
+    }
+
+    /**
+     * 每次解码与缓存解析的耗时对比, 以mvn test -Dtest=LoginInfoResolverTests -Dbenchmark=true运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void benchmark() throws Exception {
+        var headers = new String[1000];
+        var requests = new NativeWebRequest[headers.length];
+        for (var i = 0; i < headers.length; i++) {
+            headers[i] = header(i);
+            requests[i] = request(headers[i]);
+        }
+
+        var resolver = new LoginInfoResolver(new SimpleMeterRegistry(), 10000, 600);
+        for (var round = 0; round < ROUNDS; round++) {
+            Json.toBeanFromBase64(headers[round % headers.length], LoginInfo.class);
+            resolver.resolveArgument(null, null, requests[round % requests.length], null);
+        }
+
+        var decoded = new long[ROUNDS];
+        var cached = new long[ROUNDS];
+        for (var round = 0; round < ROUNDS; round++) {
+            var start = System.nanoTime();
+            Json.toBeanFromBase64(headers[round % headers.length], LoginInfo.class);
+            decoded[round] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            resolver.resolveArgument(null, null, requests[round % requests.length], null);
+            cached[round] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(decoded);
+        Arrays.sort(cached);
+        System.out.printf("decode p50=%dns p99=%dns, cached p50=%dns p99=%dns%n", decoded[ROUNDS / 2], decoded[ROUNDS * 99 / 100],
+                cached[ROUNDS / 2], cached[ROUNDS * 99 / 100]);
+    }
+
+    private static String header(long id) {
+        var info = new LoginInfo();
+        info.setId(id);
+        info.setName("用户" + id);
+        info.setTenantId(10L);
+        info.setAppId(100L);
+        return Base64.getEncoder().encodeToString(Json.toJson(info).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static NativeWebRequest request(String header) {
+        var request = mock(NativeWebRequest.class);
+        when(request.getHeader(LoginInfoResolver.HEADER)).thenReturn(header);
+        return request;
+    }
+}
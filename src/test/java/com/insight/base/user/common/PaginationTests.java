@@ -0,0 +1,90 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.dto.CursorPageDto;
+import com.insight.base.user.common.dto.UserSearch;
+import com.insight.utils.pojo.base.BusinessException;
+import com.insight.utils.pojo.base.Reply;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 游标分页
+ */
+public class PaginationTests {
+    private final List<Long> ids = LongStream.rangeClosed(1, 5).map(i -> i * 10).boxed().toList();
+    private final List<Long> afterIds = new ArrayList<>();
+
+    @Test
+    public void cursorWalksAllPages() {
+        var search = new UserSearch();
+        search.setPageSize(2);
+        search.setCursor("");
+
+        var pages = new ArrayList<List<Long>>();
+        do {
+            var page = page(search);
+            pages.add(page.getList());
+            search.setCursor(page.getNext());
+        } while (search.getCursor() != null);
+
+        assertEquals(List.of(List.of(10L, 20L), List.of(30L, 40L), List.of(50L)), pages);
+        assertEquals(Arrays.asList(null, 20L, 40L), afterIds);
+        assertNull(search.getAfterId());
+        assertNull(search.getLimit());
+    }
+
+    @Test
+    public void cursorIsOpaque() {
+        var search = new UserSearch();
+        search.setPageSize(2);
+        search.setCursor("");
+
+        var next = page(search).getNext();
+        assertNotNull(next);
+        assertFalse(next.contains("20"));
+        assertTrue(next.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    public void invalidCursorIsRejected() {
+        var search = new UserSearch();
+        search.setCursor("not a cursor!");
+
+        assertThrows(BusinessException.class, () -> page(search));
+    }
+
+    @Test
+    public void orderByIsRejected() {
+        var search = new UserSearch();
+        search.setCursor("");
+        search.setOrderBy("name");
+
+        assertThrows(BusinessException.class, () -> page(search));
+        assertTrue(afterIds.isEmpty());
+    }
+
+    /**
+     * 以内存数据模拟按ID排序的游标查询
+     *
+     * @param search 查询实体类
+     * @return 分页数据
+     */
+    @SuppressWarnings("unchecked")
+    private CursorPageDto<Long> page(UserSearch search) {
+        Reply reply = Pagination.cursorPage(search, () -> {
+            afterIds.add(search.getAfterId());
+            var after = search.getAfterId() == null ? Long.MIN_VALUE : search.getAfterId();
+            return ids.stream().filter(i -> i > after).limit(search.getLimit()).toList();
+        }, id -> id);
+
+        return (CursorPageDto<Long>) reply.getData();
+    }
+}
@@ -0,0 +1,128 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.dto.FuncPermitDto;
+import com.insight.base.user.common.dto.PermitRowDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 功能授权组装
+ */
+public class PermitCacheTests {
+
+    @Test
+    public void assemblesTree() {
+        var rows = List.of(row(31, 21, 11, 1, 1), row(32, 21, 11, 1, 0), row(33, 22, 11, 1, 1));
+        var permits = byId(PermitCache.assemble(rows));
+
+        assertEquals(7, permits.size());
+        assertNull(permits.get(1L).getParentId());
+        assertEquals(0, permits.get(1L).getType());
+        assertEquals(1L, permits.get(11L).getParentId());
+        assertEquals(11L, permits.get(21L).getParentId());
+        assertEquals(21L, permits.get(31L).getParentId());
+        assertEquals(4, permits.get(31L).getType());
+        assertEquals("允许", permits.get(31L).getRemark());
+        assertTrue(permits.get(31L).getPermit());
+        assertEquals(3, permits.get(32L).getType());
+        assertEquals("禁止", permits.get(32L).getRemark());
+        assertFalse(permits.get(32L).getPermit());
+    }
+
+    @Test
+    public void keepsParentIdsWhenParentIsMissing() {
+        // 导航21的上级模块组11不存在, 功能32的上级导航22不存在
+        var orphanNav = row(31, 21, 11, 1, 1);
+        orphanNav.setGroupId(null);
+        orphanNav.setAppId(null);
+        var orphanFunc = row(32, 22, 11, 1, 1);
+        orphanFunc.setNavId(null);
+        orphanFunc.setGroupId(null);
+        orphanFunc.setAppId(null);
+
+        var permits = byId(PermitCache.assemble(List.of(orphanNav, orphanFunc)));
+        assertEquals(List.of(21L, 31L, 32L), permits.keySet().stream().sorted().toList());
+        assertEquals(11L, permits.get(21L).getParentId());
+        assertEquals(22L, permits.get(32L).getParentId());
+    }
+
+    @Test
+    public void sortsByIndex() {
+        var first = row(31, 21, 11, 1, 1);
+        first.setIndex(2);
+        var second = row(32, 21, 11, 1, 1);
+        second.setIndex(1);
+
+        var ids = PermitCache.assemble(List.of(first, second)).stream().map(FuncPermitDto::getId).toList();
+        assertTrue(ids.indexOf(32L) < ids.indexOf(31L));
+    }
+
+    /**
+     * 组装耗时基准, 以mvn test -Dtest=PermitCacheTests -Dbenchmark=true运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void benchmark() {
+        for (var functions : new int[]{1000, 5000, 20000}) {
+            var rows = new ArrayList<PermitRowDto>(functions);
+            for (var i = 0; i < functions; i++) {
+                // 10个应用, 每个应用10个模块组, 每个模块组10个导航
+                var nav = 100000L + i % 1000;
+                rows.add(row(1000000L + i, nav, 10000L + (nav - 100000) / 10, 1L + (nav - 100000) / 100, i % 7 == 0 ? 0 : 1));
+            }
+
+            var times = new long[200];
+            for (var round = 0; round < 50; round++) {
+                PermitCache.assemble(rows);
+            }
+
+            for (var round = 0; round < times.length; round++) {
+                var start = System.nanoTime();
+                PermitCache.assemble(rows);
+                times[round] = System.nanoTime() - start;
+            }
+
+            Arrays.sort(times);
+            System.out.printf("functions=%d p50=%dus p99=%dus%n", functions, times[times.length / 2] / 1000,
+                    times[times.length * 99 / 100] / 1000);
+        }
+    }
+
+    private static Map<Long, FuncPermitDto> byId(List<FuncPermitDto> permits) {
+        return permits.stream().collect(Collectors.toMap(FuncPermitDto::getId, Function.identity()));
+    }
+
+    private static PermitRowDto row(long id, long navId, long groupId, long appId, int permit) {
+        var row = new PermitRowDto();
+        row.setId(id);
+        row.setParentId(navId);
+        row.setIndex((int) (id % 100));
+        row.setName("功能" + id);
+        row.setPermit(permit);
+        row.setNavId(navId);
+        row.setNavParentId(groupId);
+        row.setNavIndex((int) (navId % 100));
+        row.setNavType(2);
+        row.setNavName("导航" + navId);
+        row.setGroupId(groupId);
+        row.setGroupParentId(appId);
+        row.setGroupIndex((int) (groupId % 100));
+        row.setGroupType(1);
+        row.setGroupName("模块组" + groupId);
+        row.setAppId(appId);
+        row.setAppIndex((int) appId);
+        row.setAppName("应用" + appId);
+        return row;
+    }
+}
@@ -0,0 +1,108 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.mapper.UserMapper;
+import com.insight.utils.pojo.user.User;
+import com.insight.utils.pojo.user.UserDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.Invocation;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户缓存变更的Redis往返次数
+ * 原实现中编辑用户时每个变更字段需hasKey+put两次往返, 每个失效的登录标识需一次delete, 删除用户需6次delete;
+ * 现在每次变更无论涉及多少字段和键都只有一次管道往返
+ */
+public class UserCacheTests {
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final UserCache cache = new UserCache(mock(UserMapper.class), redis, mock(RedisMessageListenerContainer.class),
+            new SimpleMeterRegistry(), 100, 60);
+
+    @Test
+    public void updateUsesOneRoundTrip() {
+        var old = new User();
+        old.setId(1L);
+        old.setName("张三");
+        old.setAccount("zhangsan");
+        old.setMobile("13800000000");
+        old.setEmail("zhangsan@example.com");
+
+        var user = new UserDto();
+        user.setId(1L);
+        user.setName("张三丰");
+        user.setAccount("zhangsanfeng");
+        user.setMobile("13900000000");
+        user.setEmail("zhangsanfeng@example.com");
+
+        // 原实现: 4个字段 x (hasKey + put) + 3个delete = 11次往返
+        cache.update(old, user);
+
+        var connection = replay();
+        var evals = invocations(connection.scriptingCommands(), "eval");
+        assertEquals(1, evals.size());
+        assertEquals(9, ((byte[][]) evals.get(0).getRawArguments()[3]).length);
+
+        var unlinks = invocations(connection.keyCommands(), "unlink");
+        assertEquals(1, unlinks.size());
+        assertEquals(List.of("ID:zhangsan", "ID:13800000000", "ID:zhangsan@example.com"), keys(unlinks.get(0)));
+        assertEquals(1, invocations(connection.pubSubCommands(), "publish").size());
+    }
+
+    @Test
+    public void removeUsesOneRoundTrip() {
+        var user = new User();
+        user.setId(2L);
+        user.setAccount("lisi");
+        user.setMobile("13700000000");
+        user.setEmail("lisi@example.com");
+
+        // 原实现: 6次delete
+        cache.remove(user);
+
+        var connection = replay();
+        var unlinks = invocations(connection.keyCommands(), "unlink");
+        assertEquals(1, unlinks.size());
+        assertEquals(List.of("ID:lisi", "ID:13700000000", "ID:lisi@example.com", "User:2", "UserToken:2"), keys(unlinks.get(0)));
+        assertEquals(0, invocations(connection.scriptingCommands(), "eval").size());
+    }
+
+    /**
+     * 校验只发生一次管道往返,并在模拟连接上执行管道中的命令
+     *
+     * @return 模拟连接
+     */
+    @SuppressWarnings("unchecked")
+    private RedisConnection replay() {
+        var captor = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redis, times(1)).executePipelined(captor.capture());
+        verifyNoMoreInteractions(redis);
+
+        var connection = mock(RedisConnection.class, RETURNS_DEEP_STUBS);
+        captor.getValue().doInRedis(connection);
+        return connection;
+    }
+
+    private static List<Invocation> invocations(Object mock, String method) {
+        Collection<Invocation> list = mockingDetails(mock).getInvocations();
+        return list.stream().filter(i -> i.getMethod().getName().equals(method)).toList();
+    }
+
+    private static List<String> keys(Invocation invocation) {
+        return Arrays.stream((byte[][]) invocation.getRawArguments()[0]).map(k -> new String(k, StandardCharsets.UTF_8)).toList();
+    }
+}
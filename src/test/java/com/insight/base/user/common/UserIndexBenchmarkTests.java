@@ -0,0 +1,149 @@
+package com.insight.base.user.common;
+
+import com.insight.base.user.common.dto.TenantUserDto;
+import com.insight.base.user.common.dto.UserSearch;
+import com.insight.base.user.common.mapper.UserMapper;
+import com.insight.utils.pojo.user.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author 宣炳刚
+ * @date 2026-10-18
+ * @remark 用户检索索引的内存占用和查询延迟基准, 以mvn test -Dtest=UserIndexBenchmarkTests -Dbenchmark=true运行,
+ * 用户数由-Dbenchmark.users指定(默认100万)
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class UserIndexBenchmarkTests {
+    private static final String NAMES = "赵钱孙李周吴郑王冯陈褚卫蒋沈韩杨朱秦尤许何吕施张孔曹严华金魏陶姜明华建国志强秀英桂兰玉梅丽娟海燕";
+    private static final int TENANTS = 1000;
+    private static final int QUERIES = 10000;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void memoryAndLatency() {
+        var users = Integer.getInteger("benchmark.users", 1_000_000);
+        var mapper = mock(UserMapper.class);
+        doAnswer(invocation -> {
+            ResultHandler<User> handler = invocation.getArgument(0);
+            var random = new Random(1);
+            for (var i = 1; i <= users; i++) {
+                handler.handleResult(new Row<>(user(i, random)));
+            }
+
+            return null;
+        }).when(mapper).scanUsers(any(ResultHandler.class));
+        doAnswer(invocation -> {
+            ResultHandler<TenantUserDto> handler = invocation.getArgument(0);
+            for (var i = 1; i <= users; i++) {
+                var relation = new TenantUserDto();
+                relation.setTenantId((long) (i % TENANTS));
+                relation.setUserId((long) i);
+                handler.handleResult(new Row<>(relation));
+            }
+
+            return null;
+        }).when(mapper).scanTenantUsers(any(ResultHandler.class));
+
+        var registry = new SimpleMeterRegistry();
+        var index = new UserIndex(mapper, mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class), registry, 5000);
+        var runtime = Runtime.getRuntime();
+        System.gc();
+        var heap = runtime.totalMemory() - runtime.freeMemory();
+        var start = System.nanoTime();
+        index.rebuild();
+        var buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.gc();
+        var heapDelta = runtime.totalMemory() - runtime.freeMemory() - heap;
+
+        var random = new Random(2);
+        var latencies = new long[QUERIES];
+        var resolved = 0;
+        for (var i = 0; i < QUERIES; i++) {
+            var search = new UserSearch();
+            search.setKeyword(keyword(random, users));
+            var begin = System.nanoTime();
+            index.resolve(search, i % 2 == 0 ? null : (long) random.nextInt(TENANTS));
+            latencies[i] = System.nanoTime() - begin;
+            resolved += search.getCandidates() == null ? 0 : 1;
+        }
+
+        Arrays.sort(latencies);
+        var size = registry.get("user.index.size").gauge().value();
+        System.out.printf("users=%d build=%dms index=%.1fMB heapDelta=%.1fMB resolved=%d/%d p50=%dus p99=%dus max=%dus%n",
+                users, buildMillis, size / 1048576, heapDelta / 1048576.0, resolved, QUERIES, latencies[QUERIES / 2] / 1000,
+                latencies[QUERIES * 99 / 100] / 1000, latencies[QUERIES - 1] / 1000);
+        assertNotNull(registry.find("user.index.query").timer());
+    }
+
+    private static User user(int i, Random random) {
+        var user = new User();
+        user.setId((long) i);
+        user.setCode(String.format("%08d", i));
+        user.setName(name(random));
+        user.setAccount("user" + i);
+        user.setMobile(String.format("13%09d", i));
+        user.setEmail("user" + i + "@example.com");
+        return user;
+    }
+
+    private static String name(Random random) {
+        var length = 2 + random.nextInt(2);
+        var name = new StringBuilder(length);
+        for (var i = 0; i < length; i++) {
+            name.append(NAMES.charAt(random.nextInt(NAMES.length())));
+        }
+
+        return name.toString();
+    }
+
+    /**
+     * 关键词: 姓名片段、账号片段和手机号片段各占三分之一
+     */
+    private static String keyword(Random random, int users) {
+        return switch (random.nextInt(3)) {
+            case 0 -> name(random);
+            case 1 -> "user" + (1 + random.nextInt(users));
+            default -> String.format("%09d", 1 + random.nextInt(users)).substring(3);
+        };
+    }
+
+    /**
+     * 流式读取的单行结果
+     */
+    private record Row<T>(T value) implements ResultContext<T> {
+
+        @Override
+        public T getResultObject() {
+            return value;
+        }
+
+        @Override
+        public int getResultCount() {
+            return 0;
+        }
+
+        @Override
+        public boolean isStopped() {
+            return false;
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}